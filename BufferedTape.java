@@ -0,0 +1,453 @@
+package sorts.tapesort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps another tape, reading it ahead and writing it behind in blocks on a background thread, so the sort
+ * using it does not wait on the other tape's device one object at a time. This is most useful around tapes
+ * kept on disk, like FileTape: while the sort reads one block, the next is already being read from the other
+ * tape, and while it fills one block to write, the last one is being written out. Two blocks are used in each
+ * direction ("double buffering"), and only one task runs for each tape at a time, so the wrapped tape is only
+ * ever used by one thread at a time and need not be thread-safe.
+ * Like FileTape, data can only be appended, so write() may only be called when the current position has no
+ * datum, which is the only way the tapesorts write to their tapes. Written objects reach the wrapped tape when
+ * their block is full, or when the tape is rewound, flushed or closed.
+ * The tape can be read backward with retreat() if the wrapped tape can, but not buffered: from the first
+ * retreat() until the tape is next rewound or erased, every call goes straight through to the wrapped tape.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public class BufferedTape<T> implements Tape<T>, Closeable {
+
+	/*
+	 * Keeps track of how many times the tape has been written to, as in LinkedTape
+	 */
+	private int writes = 0;
+
+	/*
+	 * The number of objects in each block if none is given
+	 */
+	private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	/*
+	 * Numbers the shared threads
+	 */
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	/*
+	 * The threads reading and writing the wrapped tapes if no others are given; shared by every BufferedTape
+	 */
+	private static final ExecutorService SHARED_THREADS = Executors.newCachedThreadPool(task -> {
+		Thread thread = new Thread(task, "tape-buffer-" + THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/*
+	 * The tape being buffered
+	 */
+	private final Tape<T> delegate;
+
+	/*
+	 * The number of objects in each block
+	 */
+	private final int blockSize;
+
+	/*
+	 * The threads the blocks are read and written on
+	 */
+	private final ExecutorService threads;
+
+	/*
+	 * The block being read (or, while writing, filled) by the sort
+	 */
+	private Object[] block;
+
+	/*
+	 * The other block: the one being read ahead or written behind by the background task
+	 */
+	private Object[] spare;
+
+	/*
+	 * The number of objects in block
+	 */
+	private int count = 0;
+
+	/*
+	 * The index in block of the current position; index == count while writing means the position just past the end
+	 */
+	private int index = 0;
+
+	/*
+	 * The task reading the next block ahead, or writing the last one behind; null if there is none
+	 */
+	private Future<Integer> pending = null;
+
+	/*
+	 * Whether every object on the wrapped tape has been read ahead
+	 */
+	private boolean exhausted = true;
+
+	/*
+	 * Whether the tape is being written; once it is, the sort is at its end
+	 */
+	private boolean writing = false;
+
+	/*
+	 * Whether the tape has been retreated since it was last rewound or erased, and so is used unbuffered
+	 */
+	private boolean direct = false;
+
+	/*
+	 * The number of objects on the tape, counting those not yet written out; -1 if the wrapped tape's length was not known
+	 */
+	private long size;
+
+	/**
+	 * Wraps the tape, using blocks of the default size and the shared background threads.
+	 * The tape is rewound, and should not be used except through this one from now on.
+	 * @param delegate The tape to buffer
+	 */
+	public BufferedTape(Tape<T> delegate) {
+		this(delegate, DEFAULT_BLOCK_SIZE, SHARED_THREADS);
+	}
+
+	/**
+	 * Wraps the tape, using blocks of blockSize objects and the shared background threads.
+	 * The tape is rewound, and should not be used except through this one from now on.
+	 * @param delegate The tape to buffer
+	 * @param blockSize The number of objects read or written at once; must be at least 1
+	 */
+	public BufferedTape(Tape<T> delegate, int blockSize) {
+		this(delegate, blockSize, SHARED_THREADS);
+	}
+
+	/**
+	 * Wraps the tape, using blocks of blockSize objects read and written on the given threads.
+	 * The tape is rewound, and should not be used except through this one from now on.
+	 * @param delegate The tape to buffer
+	 * @param blockSize The number of objects read or written at once; must be at least 1
+	 * @param threads The threads to read and write the blocks on
+	 */
+	public BufferedTape(Tape<T> delegate, int blockSize, ExecutorService threads) {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Block size must be at least 1");
+		this.delegate = delegate;
+		this.blockSize = blockSize;
+		this.threads = threads;
+		this.block = new Object[blockSize];
+		this.spare = new Object[blockSize];
+		this.size = delegate.length();
+		rewind();
+	}
+
+	/**
+	 * Makes a new empty tape wrapping a blank() of the wrapped tape, with the same block size and threads
+	 * @return A new empty BufferedTape
+	 */
+	@Override
+	public Tape<T> blank() {
+		return new BufferedTape<T>(delegate.blank(), blockSize, threads);
+	}
+
+	/**
+	 * Resets the current position to the beginning ("head") of the tape. Anything written is first written out
+	 * to the wrapped tape, and the first block is then read ahead.
+	 */
+	@Override
+	public void rewind() {
+		flush();
+		if (pending != null) //Let the read ahead finish with the wrapped tape first
+			await();
+		delegate.rewind();
+		direct = false;
+		writing = false;
+		exhausted = false;
+		count = 0;
+		index = 0;
+		readAhead();
+	}
+
+	/**
+	 * Erases/empties the entire tape, along with anything still waiting to be read or written; resets the
+	 * current position to the head
+	 */
+	@Override
+	public void erase() {
+		if (pending != null) //Let the task finish with the wrapped tape first; its result no longer matters
+			await();
+		delegate.erase();
+		direct = false;
+		size = 0;
+		clear(block, count);
+		writing = true; //An empty tape is at its end
+		exhausted = true;
+		count = 0;
+		index = 0;
+	}
+
+	/**
+	 * Reads the current tape position and returns the object stored there, waiting for its block to be read
+	 * ahead if it has not been yet
+	 * @return The object stored at the current position on the tape
+	 */
+	@Override
+	public T read() {
+		if (direct)
+			return delegate.read();
+		if (index == count && !writing && !exhausted) //Used up this block; switch to the one read ahead
+			nextBlock();
+		return index < count ? item(index) : null;
+	}
+
+	/**
+	 * Advances the current position on the tape unless the current position has no datum.
+	 */
+	@Override
+	public void advance() {
+		if (direct) {
+			delegate.advance();
+			return;
+		}
+		if (read() == null) //Does not advance if current position has no datum
+			return;
+		index++;
+	}
+
+	/**
+	 * Moves the current position back one object, toward the head, as the wrapped tape's retreat() does. The first
+	 * time, anything written is first written out, and the wrapped tape is moved back to the current position from
+	 * wherever reading ahead had taken it; from then until the tape is rewound or erased, it is used unbuffered.
+	 * @throws UnsupportedOperationException if the wrapped tape cannot be read backward
+	 */
+	@Override
+	public void retreat() {
+		if (!direct) {
+			if (writing) {
+				boolean onLast = read() != null;
+				flush(); //Leaves the wrapped tape on its last object
+				if (!onLast)
+					delegate.advance();
+			}
+			else {
+				//The wrapped tape is past the current position by the rest of this block, and whatever is being read ahead
+				int behind = count - index + (pending != null ? await() : 0);
+				for (int i = 0; i < behind; i++)
+					delegate.retreat();
+			}
+			clear(spare, blockSize);
+			clear(block, count);
+			count = 0;
+			index = 0;
+			writing = false;
+			exhausted = true;
+			direct = true;
+		}
+		delegate.retreat();
+	}
+
+	/**
+	 * Writes the datum at the end of the tape and increments the writes counter. When the block being written
+	 * is full, it is written out to the wrapped tape in the background.
+	 * @param datum The object to be written to the tape
+	 * @throws UnsupportedOperationException if the current position already has a datum
+	 */
+	@Override
+	public void write(T datum) {
+		if (direct) {
+			delegate.write(datum);
+			writes++;
+			if (size >= 0)
+				size++;
+			return;
+		}
+		if (read() != null)
+			throw new UnsupportedOperationException("A BufferedTape can only be written to at its end");
+		if (!writing) { //Everything has been read, so the wrapped tape is at its end; start filling blocks
+			writing = true;
+			clear(block, count);
+			count = 0;
+			index = 0;
+		}
+		if (count == blockSize) //The block is full; write it behind, and fill the other one meanwhile
+			writeBehind();
+		writes++;
+		if (size >= 0)
+			size++;
+		block[count++] = datum;
+		index = count - 1; //The current position is the datum just written
+	}
+
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	@Override
+	public int getWrites() {
+		return writes;
+	}
+
+	/**
+	 * Resets the number of writes to this tape to zero
+	 */
+	@Override
+	public void resetWrites() {
+		writes = 0;
+	}
+
+	/**
+	 * The number of objects on the tape, including any not yet written out to the wrapped tape
+	 * @return The number of objects on the tape, or -1 if the wrapped tape did not know its length when it was wrapped
+	 */
+	@Override
+	public long length() {
+		return size;
+	}
+
+	/**
+	 * Prints the contents of the tape in order, separated by spaces.
+	 * Side effect: the tape is left rewound.
+	 */
+	@Override
+	public void print() {
+		for (rewind(); read() != null; advance())
+			System.out.print(read() + " ");
+		System.out.println();
+		rewind();
+	}
+
+	/**
+	 * Writes out anything written to this tape but not yet to the wrapped tape, and waits for it to be written.
+	 * Does nothing if the tape is being read; if it is being written, the current position is left just past its end.
+	 */
+	public void flush() {
+		if (!writing)
+			return;
+		if (pending != null)
+			await();
+		for (int i = 0; i < count; i++) //The last block is written on this thread, since we must wait for it anyway
+			TapeSorter.append(delegate, item(i));
+		clear(block, count);
+		count = 0;
+		index = 0;
+	}
+
+	/**
+	 * Flushes the tape, waits for any read ahead to finish with the wrapped tape, then closes the wrapped tape
+	 * if it can be closed. The tape should not be used after being closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		if (pending != null) //A read ahead, started by rewind(); it must not be left reading a closed tape
+			await();
+		if (delegate instanceof Closeable)
+			((Closeable) delegate).close();
+	}
+
+	/*
+	 * Starts reading the next block from the wrapped tape into spare, on a background thread
+	 */
+	private void readAhead() {
+		final Object[] into = spare;
+		pending = threads.submit(() -> {
+			int read = 0;
+			for (; read < blockSize && delegate.read() != null; delegate.advance())
+				into[read++] = delegate.read();
+			return read;
+		});
+	}
+
+	/*
+	 * Makes the block read ahead the current one, and starts reading the block after it, unless the wrapped tape has run out
+	 */
+	private void nextBlock() {
+		int read = await();
+		clear(block, count);
+		Object[] done = block;
+		block = spare;
+		spare = done;
+		count = read;
+		index = 0;
+		if (read < blockSize) //The wrapped tape ran out during this block
+			exhausted = true;
+		else
+			readAhead();
+	}
+
+	/*
+	 * Starts writing the current (full) block to the wrapped tape on a background thread, once the last one is written,
+	 * and makes the spare block the current one
+	 */
+	private void writeBehind() {
+		if (pending != null)
+			await();
+		final Object[] out = block;
+		final int size = count;
+		pending = threads.submit(() -> {
+			for (int i = 0; i < size; i++)
+				TapeSorter.append(delegate, cast(out[i]));
+			clear(out, size);
+			return size;
+		});
+		block = spare;
+		spare = out;
+		count = 0;
+		index = 0;
+	}
+
+	/*
+	 * Waits for the pending task, rethrowing anything it threw
+	 */
+	private int await() {
+		Future<Integer> task = pending;
+		pending = null;
+		boolean interrupted = false;
+		try {
+			for (;;) {
+				try {
+					return task.get();
+				}
+				catch (InterruptedException e) {
+					interrupted = true; //The task still has the wrapped tape, so keep waiting
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException("Buffered tape I/O failed", cause);
+				}
+			}
+		}
+		finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private T item(int i) {
+		return cast(block[i]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T cast(Object item) {
+		return (T) item;
+	}
+
+	/*
+	 * Drops the references in the first size slots of the block, so used objects can be collected
+	 */
+	private static void clear(Object[] block, int size) {
+		Arrays.fill(block, 0, size, null);
+	}
+}
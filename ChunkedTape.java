@@ -0,0 +1,368 @@
+package sorts.tapesort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A tape kept on the heap in chunks of CHUNK_SIZE objects, in Object[] arrays, instead of a linked list of Nodes.
+ * Moving along the tape is an index increment, and the objects next to each other on the tape are next to
+ * each other in memory, so reading and writing the tape sequentially is friendly to the CPU's caches.
+ * erase() keeps the tape's chunks to write over, so a tape that is erased and written again and again
+ * (as the tapesorts' tapes are on every pass) only allocates chunks while it is longer than it has been before.
+ * The bulk methods copy whole slices of chunks at once with System.arraycopy. Its spliterator() indexes the
+ * chunks directly, so the tape can be streamed, in parallel too, without moving the current position.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public class ChunkedTape<T> implements Tape<T> {
+
+	/*
+	 * The number of objects in each chunk; a power of two, so a position's chunk and index are a shift and a mask
+	 */
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/*
+	 * Keeps track of how many times the tape has been written to, as in LinkedTape
+	 */
+	private int writes = 0;
+
+	/*
+	 * The chunks holding the tape's contents, in order. Chunks past the end of the tape are kept, empty,
+	 * from before the tape was last erased.
+	 */
+	private final ArrayList<Object[]> chunks = new ArrayList<Object[]>();
+
+	/*
+	 * The chunk holding the current position
+	 */
+	private Object[] chunk;
+
+	/*
+	 * The index of the current position in chunk
+	 */
+	private int index = 0;
+
+	/*
+	 * The index of chunk in chunks
+	 */
+	private int chunkNumber = 0;
+
+	/*
+	 * The number of objects on the tape
+	 */
+	private long size = 0;
+
+	/*
+	 * Stands in for chunk at the empty position before the head, which retreat() moves onto from the head.
+	 * Its one slot is always null, so read() needs no check for it, and advance() does not move from it.
+	 */
+	private final Object[] beforeHead = new Object[1];
+
+	/**
+	 * Makes a new empty tape
+	 */
+	public ChunkedTape() {
+		chunk = new Object[CHUNK_SIZE];
+		chunks.add(chunk);
+	}
+
+	/**
+	 * Makes a new empty ChunkedTape
+	 * @return A new empty tape
+	 */
+	@Override
+	public Tape<T> blank() {
+		return new ChunkedTape<T>();
+	}
+
+	/**
+	 * Resets the current position to the beginning ("head") of the tape
+	 */
+	@Override
+	public void rewind() {
+		moveTo(0);
+	}
+
+	/**
+	 * Erases/empties the entire tape; resets the current position to the head.
+	 * The chunks are kept, and cleared so the objects that were on them can be collected.
+	 */
+	@Override
+	public void erase() {
+		long cleared = 0;
+		for (Object[] used : chunks) {
+			if (cleared >= size)
+				break;
+			Arrays.fill(used, 0, (int) Math.min(CHUNK_SIZE, size - cleared), null);
+			cleared += CHUNK_SIZE;
+		}
+		size = 0;
+		rewind();
+	}
+
+	/**
+	 * Reads the current tape position and returns the object stored there
+	 * @return The object stored at the current position on the tape
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T read() {
+		return (T) chunk[index];
+	}
+
+	/**
+	 * Advances the current position on the tape unless the current position has no datum.
+	 */
+	@Override
+	public void advance() {
+		if (chunk[index] == null) //Does not advance if current position has no datum
+			return;
+		if (++index == CHUNK_SIZE) { //Moves on to the next chunk, making it if needed
+			index = 0;
+			if (++chunkNumber == chunks.size())
+				chunks.add(new Object[CHUNK_SIZE]);
+			chunk = chunks.get(chunkNumber);
+		}
+	}
+
+	/**
+	 * Moves the current position back one object; from the head, onto the empty position before it
+	 */
+	@Override
+	public void retreat() {
+		if (chunk == beforeHead) //Does not move back past the position before the head
+			return;
+		if (index > 0)
+			index--;
+		else if (chunkNumber > 0) { //Moves back to the end of the previous chunk
+			chunk = chunks.get(--chunkNumber);
+			index = CHUNK_MASK;
+		}
+		else
+			chunk = beforeHead;
+	}
+
+	/**
+	 * Writes the datum to the current tape position and increments the writes counter
+	 * @param datum The object to be written to the tape
+	 */
+	@Override
+	public void write(T datum) {
+		writes++;
+		if (chunk[index] == null && datum != null && position() == size) //Writing to the empty position at the end lengthens the tape
+			size++;
+		chunk[index] = datum;
+	}
+
+	/**
+	 * Reads up to length objects into the buffer, a slice of a chunk at a time, and advances past them
+	 * @param buffer The array to read the objects into
+	 * @param offset The index in buffer of the first object read
+	 * @param length The most objects to read
+	 * @return The number of objects read; less than length only if the end of the tape was reached
+	 */
+	@Override
+	public int readInto(T[] buffer, int offset, int length) {
+		int read = 0;
+		for (int slice; (slice = slice(length - read)) > 0; read += slice) {
+			System.arraycopy(chunk, index, buffer, offset + read, slice);
+			moveTo(position() + slice);
+		}
+		return read;
+	}
+
+	/**
+	 * Writes the objects in the buffer one after another after the current position, a slice of a chunk at a time.
+	 * The current position is left on the last object written.
+	 * @param buffer The array holding the objects to write; none of them may be null
+	 * @param offset The index in buffer of the first object to write
+	 * @param length The number of objects to write
+	 */
+	@Override
+	public void writeFrom(T[] buffer, int offset, int length) {
+		if (length == 0)
+			return;
+		long position = chunk[index] != null ? position() + 1 : position(); //Writes after the current datum, if there is one
+		long end = position + length;
+		for (int written = 0; written < length; ) {
+			moveTo(position + written);
+			int slice = Math.min(length - written, CHUNK_SIZE - index);
+			System.arraycopy(buffer, offset + written, chunk, index, slice);
+			written += slice;
+		}
+		writes += length;
+		size = Math.max(size, end);
+		moveTo(end - 1);
+	}
+
+	/**
+	 * Moves up to max objects onto the end of dest, handing it a slice of a chunk at a time with writeFrom()
+	 * @param dest The tape to move the objects to; must not be this tape
+	 * @param max The most objects to move; Long.MAX_VALUE moves the rest of the tape
+	 * @return The number of objects moved; less than max only if the end of this tape was reached
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public long transferTo(Tape<T> dest, long max) {
+		long moved = 0;
+		for (int slice; (slice = slice(max - moved)) > 0; moved += slice) {
+			dest.writeFrom((T[]) chunk, index, slice);
+			moveTo(position() + slice);
+		}
+		return moved;
+	}
+
+	/**
+	 * The number of objects on the tape
+	 * @return The number of objects on the tape
+	 */
+	@Override
+	public long length() {
+		return size;
+	}
+
+	/**
+	 * Prints the contents of the tape in order, separated by spaces.
+	 * The current position is not changed.
+	 */
+	@Override
+	public void print() {
+		for (long i = 0; i < size; i++)
+			System.out.print(chunks.get((int) (i >>> CHUNK_SHIFT))[(int) (i & CHUNK_MASK)] + " ");
+		System.out.println();
+	}
+
+	/**
+	 * Iterates over the contents of the tape in order. The current position is not changed.
+	 * @return An iterator over the objects on the tape
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	/**
+	 * Splits the contents of the tape in order, by position, so it splits evenly for parallel streams.
+	 * The current position is not changed.
+	 * @return A sized spliterator over the objects on the tape
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new ChunkSpliterator(0, size);
+	}
+
+	/*
+	 * The current position on the tape
+	 */
+	private long position() {
+		return ((long) chunkNumber << CHUNK_SHIFT) + index;
+	}
+
+	/*
+	 * Moves the current position to the given one, making chunks up to it if needed
+	 */
+	private void moveTo(long position) {
+		chunkNumber = (int) (position >>> CHUNK_SHIFT);
+		index = (int) (position & CHUNK_MASK);
+		while (chunks.size() <= chunkNumber)
+			chunks.add(new Object[CHUNK_SIZE]);
+		chunk = chunks.get(chunkNumber);
+	}
+
+	/*
+	 * The number of objects, up to max, from the current position to the end of its chunk or of the tape
+	 */
+	private int slice(long max) {
+		if (chunk == beforeHead) //Nothing can be read from the position before the head
+			return 0;
+		return (int) Math.min(max, Math.min(CHUNK_SIZE - index, size - position()));
+	}
+
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	@Override
+	public int getWrites() {
+		return writes;
+	}
+
+	/**
+	 * Resets the number of writes to this tape to zero
+	 */
+	@Override
+	public void resetWrites() {
+		writes = 0;
+	}
+
+	/*
+	 * Walks the positions from position up to end, reading the chunks directly
+	 */
+	private class ChunkSpliterator implements Spliterator<T> {
+
+		/*
+		 * The next position to return
+		 */
+		private long position;
+
+		/*
+		 * The position after the last one to return
+		 */
+		private final long end;
+
+		ChunkSpliterator(long position, long end) {
+			this.position = position;
+			this.end = end;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (position >= end)
+				return false;
+			action.accept((T) chunks.get((int) (position >>> CHUNK_SHIFT))[(int) (position & CHUNK_MASK)]);
+			position++;
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEachRemaining(Consumer<? super T> action) {
+			while (position < end) { //A chunk's slice at a time
+				Object[] from = chunks.get((int) (position >>> CHUNK_SHIFT));
+				int start = (int) (position & CHUNK_MASK);
+				int stop = (int) Math.min(CHUNK_SIZE, start + (end - position));
+				for (int i = start; i < stop; i++)
+					action.accept((T) from[i]);
+				position += stop - start;
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			long middle = (position + end) >>> 1;
+			if (middle - position < CHUNK_SIZE) //Not worth splitting less than a chunk
+				return null;
+			ChunkSpliterator prefix = new ChunkSpliterator(position, middle);
+			position = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - position;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | SIZED | SUBSIZED;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package sorts.tapesort;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * This class exists entirely to test efficiency of various tape sort algorithms.
  * It is essentially an Integer whose compareTo() also keeps track of a static variable,
@@ -13,9 +15,12 @@ public class CompCounter implements Comparable<CompCounter> {
 	
 	/**
 	 * The entire point of this class; comparisons keeps track of how many times a CompCounter's compareTo()
-	 * has been called since the last time it was reset()
+	 * has been called since the last time it was reset(). A LongAdder is used so the count is a long that will
+	 * not overflow on big sorts, and so sorts on different threads can count at once without losing counts or
+	 * waiting on each other (each thread mostly adds to a cell of its own). To count the comparisons of a single
+	 * sort while others are running, use TapeSorter.getTotalComparisons() instead.
 	 */
-	private static int comparisons = 0;
+	private static final LongAdder comparisons = new LongAdder();
 	
 	/**
 	 * int Constructor; value is initialized to a new Integer whose value is val.
@@ -46,7 +51,7 @@ public class CompCounter implements Comparable<CompCounter> {
 	 */
 	@Override
 	public int compareTo(CompCounter c) {
-		comparisons++;
+		comparisons.increment();
 		return value.compareTo(c.getValue());
 	}
 	
@@ -62,15 +67,15 @@ public class CompCounter implements Comparable<CompCounter> {
 	 * Reset the number of comparisons counted in preparation for a new test.
 	 */
 	public static void resetComparisons() {
-		comparisons = 0;
+		comparisons.reset();
 	}
 	
 	/**
 	 * Get the number of times compareTo() has been called, in order to track how many comparisons have been done.
 	 * @return The number of times compareTo() has been called since the last reset()
 	 */
-	public static int getComparisons() {
-		return comparisons;
+	public static long getComparisons() {
+		return comparisons.sum();
 	}
 	
 	/**
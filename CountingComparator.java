@@ -0,0 +1,59 @@
+package sorts.tapesort;
+
+import java.util.Comparator;
+
+/**
+ * A Comparator which counts how many comparisons it makes, passing each comparison on to another Comparator.
+ * Unlike CompCounter, the count belongs to the CountingComparator rather than to the class, so each sort can
+ * count its own comparisons, whatever it is sorting. The count is a plain long, not shared between threads;
+ * a CountingComparator should only be used by one thread at a time, and threads sorting at the same time should
+ * each have their own and add up their counts afterwards.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects being compared
+ */
+public class CountingComparator<T> implements Comparator<T> {
+
+	/*
+	 * The Comparator that actually compares the objects
+	 */
+	private final Comparator<? super T> order;
+
+	/*
+	 * The number of comparisons made since this was made or last reset
+	 */
+	private long count = 0;
+
+	/**
+	 * Makes a CountingComparator which compares objects as order does
+	 * @param order The Comparator that compares the objects
+	 */
+	public CountingComparator(Comparator<? super T> order) {
+		this.order = order;
+	}
+
+	/**
+	 * Compares the objects as the wrapped Comparator does, counting the comparison
+	 * @return Whether a is less than (< 0), equal to (0) or greater than (> 0) b
+	 */
+	@Override
+	public int compare(T a, T b) {
+		count++;
+		return order.compare(a, b);
+	}
+
+	/**
+	 * Get the number of comparisons made
+	 * @return The number of times compare() has been called since this was made or last reset
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Reset the number of comparisons counted to 0
+	 */
+	public void reset() {
+		count = 0;
+	}
+}
@@ -0,0 +1,81 @@
+package sorts.tapesort;
+
+/**
+ * The costs of using a simulated tape device, for DeviceTape to charge to its clock. Tapes are free to move in
+ * memory, so the sorts can only be compared by comparisons and writes; on a real tape drive, the time taken also
+ * depends on how the tape is moved: a drive streams quickly while it keeps moving one way, but every time it
+ * stops and starts again, turns around, or rewinds, it loses time.
+ * The costs are in whatever unit of time is convenient (e.g., microseconds); the clocks are kept in the same unit.
+ * @author Nathaniel Schleicher
+ *
+ */
+public class DeviceModel {
+
+	/*
+	 * The time to read or write one object while the tape is streaming
+	 */
+	private final double transfer;
+
+	/*
+	 * The time to get the tape moving again after it has stopped
+	 */
+	private final double startStop;
+
+	/*
+	 * The time to rewind past one object
+	 */
+	private final double rewind;
+
+	/*
+	 * The time to change the direction the tape is moving in, on top of stopping and starting again
+	 */
+	private final double reversal;
+
+	/**
+	 * Makes a model of a device with the given costs
+	 * @param transfer The time to read or write one object while the tape is streaming
+	 * @param startStop The time to get the tape moving again after it has stopped
+	 * @param rewind The time to rewind past one object; rewinding takes this times the number of objects before the current position
+	 * @param reversal The time to change the direction the tape is moving in, on top of startStop
+	 */
+	public DeviceModel(double transfer, double startStop, double rewind, double reversal) {
+		if (transfer < 0 || startStop < 0 || rewind < 0 || reversal < 0)
+			throw new IllegalArgumentException("Costs cannot be negative");
+		this.transfer = transfer;
+		this.startStop = startStop;
+		this.rewind = rewind;
+		this.reversal = reversal;
+	}
+
+	/**
+	 * The time to read or write one object while the tape is streaming
+	 * @return The time to transfer one object
+	 */
+	public double getTransfer() {
+		return transfer;
+	}
+
+	/**
+	 * The time to get the tape moving again after it has stopped
+	 * @return The time to start the tape
+	 */
+	public double getStartStop() {
+		return startStop;
+	}
+
+	/**
+	 * The time to rewind past one object
+	 * @return The time to rewind past one object
+	 */
+	public double getRewind() {
+		return rewind;
+	}
+
+	/**
+	 * The time to change the direction the tape is moving in, on top of stopping and starting again
+	 * @return The time to turn the tape around
+	 */
+	public double getReversal() {
+		return reversal;
+	}
+}
@@ -0,0 +1,244 @@
+package sorts.tapesort;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Wraps another tape, keeping a simulated clock of how long the same work would take on a tape device, with the
+ * costs given by a DeviceModel. Reading or writing an object costs one transfer: an object is read when read()
+ * is first called at its position, or when the tape is moved past it without it having been read. The tape
+ * streams as long as it keeps moving the same way; it stops when it is rewound or erased, when it turns around
+ * (which also costs a reversal), and when it switches between reading and writing, and each time it is used
+ * after stopping costs a start. Rewinding and erasing cost the rewind time for every object before the current
+ * position. Only the tape's own movements are charged: a real drive would also stop while a sort was busy with
+ * other tapes, but the tapes are taken to be on drives of their own, which keep up with the sort.
+ * The sorts' getTotalDeviceTime() adds up the clocks of their DeviceTapes, so the sorts can be compared by
+ * the time they would take on a device as well as by comparisons and writes. blank() wraps a blank tape
+ * of the wrapped kind in a DeviceTape with the same model.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public class DeviceTape<T> implements Tape<T>, Closeable {
+
+	/*
+	 * The tape being timed
+	 */
+	private final Tape<T> delegate;
+
+	/*
+	 * The costs charged to the clock
+	 */
+	private final DeviceModel model;
+
+	/*
+	 * The simulated time taken so far, in the model's unit
+	 */
+	private double time = 0;
+
+	/*
+	 * The current position, counted from the head; -1 is the empty position before the head (see retreat())
+	 */
+	private long position = 0;
+
+	/*
+	 * Whether the object at the current position has been read or written since the tape moved there
+	 */
+	private boolean transferred = false;
+
+	/*
+	 * Whether the tape last moved backward
+	 */
+	private boolean backward = false;
+
+	/*
+	 * Whether the last transfer was a write
+	 */
+	private boolean writing = false;
+
+	/*
+	 * Whether the tape has stopped, and must be started before it can transfer again
+	 */
+	private boolean stopped = true;
+
+	/**
+	 * Wraps the tape, starting its clock at 0
+	 * @param delegate The tape to time; its current position is taken to be its head
+	 * @param model The costs to charge
+	 */
+	public DeviceTape(Tape<T> delegate, DeviceModel model) {
+		this.delegate = delegate;
+		this.model = model;
+	}
+
+	/**
+	 * Makes a new empty DeviceTape, wrapping a blank tape of the kind this one wraps, with the same model
+	 * @return A new empty tape
+	 */
+	@Override
+	public Tape<T> blank() {
+		return new DeviceTape<T>(delegate.blank(), model);
+	}
+
+	/**
+	 * Rewinds the tape to the head, which costs the rewind time for every object before the current position
+	 */
+	@Override
+	public void rewind() {
+		delegate.rewind();
+		returnToHead();
+	}
+
+	/**
+	 * Erases the tape, which costs as much as rewinding it
+	 */
+	@Override
+	public void erase() {
+		delegate.erase();
+		returnToHead();
+	}
+
+	/**
+	 * Reads the current tape position, costing a transfer the first time it is read
+	 * @return The object stored at the current position on the tape, or null if it has no datum
+	 */
+	@Override
+	public T read() {
+		T datum = delegate.read();
+		if (!transferred && datum != null)
+			transfer(false);
+		return datum;
+	}
+
+	/**
+	 * Advances the current position on the tape unless the current position has no datum.
+	 * The object passed over is read, if it has not been already.
+	 */
+	@Override
+	public void advance() {
+		if (delegate.read() == null) //Does not advance if current position has no datum
+			return;
+		turn(false);
+		if (!transferred)
+			transfer(false);
+		delegate.advance();
+		position++;
+		transferred = false;
+	}
+
+	/**
+	 * Moves the current position back one object, if the wrapped tape can (see Tape.retreat()).
+	 * The object passed over is read, if it has not been already.
+	 */
+	@Override
+	public void retreat() {
+		if (position < 0) //Does not move back past the position before the head
+			return;
+		boolean passed = !transferred && delegate.read() != null;
+		delegate.retreat();
+		turn(true);
+		if (passed)
+			transfer(false);
+		position--;
+		transferred = false;
+	}
+
+	/**
+	 * Writes the datum to the current tape position, costing a transfer
+	 * @param datum The object to be written to the tape
+	 */
+	@Override
+	public void write(T datum) {
+		delegate.write(datum);
+		transfer(true);
+	}
+
+	/**
+	 * The number of objects on the wrapped tape
+	 * @return The number of objects on the tape, or -1 if it is not known
+	 */
+	@Override
+	public long length() {
+		return delegate.length();
+	}
+
+	/**
+	 * Returns the number of writes to the wrapped tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	@Override
+	public int getWrites() {
+		return delegate.getWrites();
+	}
+
+	/**
+	 * Resets the number of writes to the wrapped tape to zero
+	 */
+	@Override
+	public void resetWrites() {
+		delegate.resetWrites();
+	}
+
+	/**
+	 * The simulated time this tape has taken so far
+	 * @return The time taken, in the unit of the model's costs
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Resets the simulated time to zero; should be done, like resetWrites(), after filling the tape and before
+	 * sorting it, so only the sort's time is counted
+	 */
+	public void resetTime() {
+		time = 0;
+	}
+
+	/**
+	 * Closes the wrapped tape if it can be closed. The tape should not be used after being closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (delegate instanceof Closeable)
+			((Closeable) delegate).close();
+	}
+
+	/*
+	 * Charges for reading or writing the object at the current position, starting the tape if it has stopped
+	 */
+	private void transfer(boolean write) {
+		if (write != writing) { //Switching between reading and writing stops the tape
+			writing = write;
+			stopped = true;
+		}
+		if (stopped) {
+			time += model.getStartStop();
+			stopped = false;
+		}
+		time += model.getTransfer();
+		transferred = true;
+	}
+
+	/*
+	 * Charges for turning the tape around if it last moved the other way; it stops to turn
+	 */
+	private void turn(boolean back) {
+		if (back != backward) {
+			backward = back;
+			stopped = true;
+			time += model.getReversal();
+		}
+	}
+
+	/*
+	 * Charges for rewinding to the head from the current position, where the tape stops, facing forward
+	 */
+	private void returnToHead() {
+		time += model.getRewind() * Math.max(position, 0);
+		position = 0;
+		transferred = false;
+		backward = false;
+		stopped = true;
+	}
+}
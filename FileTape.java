@@ -0,0 +1,579 @@
+package sorts.tapesort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A tape whose contents are kept in a file on disk instead of on the heap, so that the tapesorts
+ * can sort more data than fits in memory. Like a real tape, the file is only ever read and written
+ * sequentially: reading goes through a buffered input stream from the start of the file, and writing
+ * through a buffered output stream appending to its end. A TapeCodec turns the objects into bytes.
+ * Only the object at the current position is kept in memory.
+ * Since data can only be appended, write() may only be called when the current position has no datum,
+ * which is the only way the tapesorts write to their tapes.
+ * When the rest of one FileTape is moved onto another with transferTo(), as the tapesorts do to drain a tape,
+ * the bytes are copied from file to file by FileChannel.transferTo(), so the kernel moves them without
+ * their ever being decoded or entering the JVM.
+ * The tape can also be read backward with retreat(). The tape notes the offset in the file of at least every
+ * 1024th object as it is written, and reading backward decodes the objects between two of these checkpoints
+ * at a time into memory, so the file is still read in order, one stretch at a time.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public class FileTape<T> implements Tape<T>, Closeable {
+
+	/*
+	 * Keeps track of how many times the tape has been written to, as in LinkedTape
+	 */
+	private int writes = 0;
+
+	/*
+	 * Size in bytes of the stream buffers used if none is given
+	 */
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	/*
+	 * The most objects between two checkpoints, and so the most objects held in memory while reading backward
+	 */
+	private static final int CHECKPOINT_INTERVAL = 1024;
+
+	/*
+	 * The file holding the tape's contents
+	 */
+	private final File file;
+
+	/*
+	 * Whether the file was made by this tape, and so should be deleted when the tape is closed
+	 */
+	private final boolean temporary;
+
+	/*
+	 * Converts the objects on the tape to and from bytes
+	 */
+	private final TapeCodec<T> codec;
+
+	/*
+	 * Size in bytes of the stream buffers
+	 */
+	private final int bufferSize;
+
+	/*
+	 * Open while the tape is being read; positioned just after the current datum
+	 */
+	private DataInputStream in = null;
+
+	/*
+	 * Counts the bytes read through in, so the position in the file of each object read is known
+	 */
+	private CountingInputStream counter = null;
+
+	/*
+	 * The offset in the file of the object at the current position, while the tape is being read
+	 */
+	private long currentOffset = 0;
+
+	/*
+	 * Open while the tape is being written; appends to the end of the file
+	 */
+	private DataOutputStream out = null;
+
+	/*
+	 * Counts the bytes written through out
+	 */
+	private CountingOutputStream outCounter = null;
+
+	/*
+	 * The size of the file in bytes, counting any still buffered in out
+	 */
+	private long endOffset = 0;
+
+	/*
+	 * The checkpoints: the positions of the head and of later objects no more than CHECKPOINT_INTERVAL apart,
+	 * in order, and the offset in the file of each, so the tape can be read from any of them
+	 */
+	private long[] checkpointPositions = new long[16];
+	private long[] checkpointOffsets = new long[16];
+	private int checkpoints = 0;
+
+	/*
+	 * While the tape is being read backward, the objects from one checkpoint to the next, decoded; behindStart is
+	 * the position of the first of them, and behindCount how many there are
+	 */
+	private Object[] behind = null;
+	private long behindStart = 0;
+	private int behindCount = 0;
+
+	/*
+	 * The number of objects on the tape
+	 */
+	private long size = 0;
+
+	/*
+	 * The current position on the tape; position == size is the empty position just past the end, and -1 the empty
+	 * position before the head (see retreat())
+	 */
+	private long position = 0;
+
+	/*
+	 * The object at the current position, or null if the current position has no datum
+	 */
+	private T current = null;
+
+	/**
+	 * Makes a new empty tape backed by a temporary file, which is deleted when the tape is closed
+	 * or the JVM exits.
+	 * @param codec Converts the objects on the tape to and from bytes
+	 */
+	public FileTape(TapeCodec<T> codec) {
+		this(TempFiles.create(null), true, codec, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Makes a new empty tape backed by the given file. Anything already in the file is erased.
+	 * @param file The file to keep the tape's contents in
+	 * @param codec Converts the objects on the tape to and from bytes
+	 */
+	public FileTape(File file, TapeCodec<T> codec) {
+		this(file, false, codec, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Makes a new empty tape backed by the given file. Anything already in the file is erased.
+	 * @param file The file to keep the tape's contents in
+	 * @param codec Converts the objects on the tape to and from bytes
+	 * @param bufferSize The size in bytes of the buffers used to read and write the file
+	 */
+	public FileTape(File file, TapeCodec<T> codec, int bufferSize) {
+		this(file, false, codec, bufferSize);
+	}
+
+	private FileTape(File file, boolean temporary, TapeCodec<T> codec, int bufferSize) {
+		this.file = file;
+		this.temporary = temporary;
+		this.codec = codec;
+		this.bufferSize = bufferSize;
+		erase(); //Start from an empty file
+	}
+
+	/**
+	 * Makes a new empty tape backed by a temporary file in the same directory as this tape's file,
+	 * using the same codec and buffer size. The tapesorts use this for their work tapes, so they
+	 * are on disk as well.
+	 * @return A new empty FileTape
+	 */
+	@Override
+	public Tape<T> blank() {
+		return new FileTape<T>(TempFiles.create(file.getAbsoluteFile().getParentFile()), true, codec, bufferSize);
+	}
+
+	/**
+	 * Resets the current position to the beginning ("head") of the tape, reopening the file for reading
+	 */
+	@Override
+	public void rewind() {
+		closeStreams();
+		position = 0;
+		current = null;
+		if (size == 0)
+			return;
+		try {
+			counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file), bufferSize));
+			in = new DataInputStream(counter);
+			currentOffset = 0;
+			current = codec.decode(in);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Erases/empties the entire tape by truncating its file; resets the current position to the head
+	 */
+	@Override
+	public void erase() {
+		closeStreams();
+		try {
+			new FileOutputStream(file).close(); //Opening the file without appending truncates it
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		size = 0;
+		position = 0;
+		current = null;
+		endOffset = 0;
+		checkpoints = 0;
+		behindCount = 0;
+	}
+
+	/**
+	 * Reads the current tape position and returns the object stored there
+	 * @return The object stored at the current position on the tape
+	 */
+	@Override
+	public T read() {
+		return current;
+	}
+
+	/**
+	 * Advances the current position on the tape unless the current position has no datum,
+	 * decoding the next object from the file
+	 */
+	@Override
+	public void advance() {
+		if (current == null) //Does not advance if current position has no datum
+			return;
+		position++;
+		if (position == size) { //Moved onto the empty position at the end
+			current = null;
+			return;
+		}
+		if (in == null) { //Read backward to here, or written; carry on reading forward from here
+			seek(position);
+			return;
+		}
+		try {
+			currentOffset = counter.count;
+			current = codec.decode(in);
+		}
+		catch (EOFException e) {
+			throw new IllegalStateException("Tape file " + file + " ended before position " + position, e);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Moves the current position back one object, toward the head; from the head, onto an empty position before it.
+	 * The objects from the checkpoint before the new position up to the next checkpoint are decoded at once, so
+	 * carrying on backward through them takes no more reading.
+	 */
+	@Override
+	public void retreat() {
+		if (position < 0) //Does not move back past the position before the head
+			return;
+		closeStreams(); //Reading backward goes through the checkpoints instead; anything written must be in the file for it
+		position--;
+		if (position < 0) {
+			current = null;
+			return;
+		}
+		if (position < behindStart || position >= behindStart + behindCount)
+			readBehind(position);
+		current = cast(behind[(int) (position - behindStart)]);
+	}
+
+	/**
+	 * Appends the datum to the end of the tape's file and increments the writes counter
+	 * @param datum The object to be written to the tape
+	 * @throws UnsupportedOperationException if the current position already has a datum
+	 */
+	@Override
+	public void write(T datum) {
+		if (position != size)
+			throw new UnsupportedOperationException("A FileTape can only be written to at its end");
+		try {
+			if (out == null) { //Switch from reading to appending
+				closeStreams();
+				outCounter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), bufferSize), endOffset);
+				out = new DataOutputStream(outCounter);
+			}
+			if (checkpoints == 0 || size - checkpointPositions[checkpoints - 1] >= CHECKPOINT_INTERVAL)
+				checkpoint(size, endOffset);
+			codec.encode(datum, out);
+			endOffset = outCounter.count;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		writes++;
+		size++;
+		current = datum;
+	}
+
+	/**
+	 * The number of objects on the tape
+	 * @return The number of objects on the tape
+	 */
+	@Override
+	public long length() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	@Override
+	public int getWrites() {
+		return writes;
+	}
+
+	/**
+	 * Resets the number of writes to this tape to zero
+	 */
+	@Override
+	public void resetWrites() {
+		writes = 0;
+	}
+
+	/**
+	 * Moves up to max objects onto the end of dest. If dest is also a FileTape with the same codec, and the rest
+	 * of this tape is to be moved, the bytes are copied straight from this tape's file to the end of dest's with
+	 * FileChannel.transferTo(), without being decoded; dest is then left just past its end rather than on the last
+	 * object moved. Otherwise, the objects are moved one at a time.
+	 * @param dest The tape to move the objects to; must not be this tape
+	 * @param max The most objects to move; Long.MAX_VALUE moves the rest of the tape
+	 * @return The number of objects moved; less than max only if the end of this tape was reached
+	 */
+	@Override
+	public long transferTo(Tape<T> dest, long max) {
+		long remaining = size - position;
+		if (!(dest instanceof FileTape) || current == null || in == null || max < remaining)
+			return Tape.super.transferTo(dest, max);
+		FileTape<T> to = (FileTape<T>) dest;
+		if (to.codec != codec) //The bytes would mean something else to dest
+			return Tape.super.transferTo(dest, max);
+		if (to.read() != null)
+			to.advance();
+		if (to.position != to.size)
+			throw new UnsupportedOperationException("A FileTape can only be written to at its end");
+		to.closeStreams(); //Flushes anything dest has buffered, so the copy goes after it
+		long start = currentOffset;
+		closeStreams();
+		try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				FileChannel sink = FileChannel.open(to.file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			long bytes = source.size() - start;
+			for (long copied = 0; copied < bytes; ) //transferTo() may copy less than asked
+				copied += source.transferTo(start + copied, bytes - copied, sink);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		//The objects moved keep their checkpoints, shifted to where they are in dest, after one for the first of them
+		to.checkpoint(to.size, to.endOffset);
+		for (int i = 0; i < checkpoints; i++)
+			if (checkpointPositions[i] > position)
+				to.checkpoint(to.size + checkpointPositions[i] - position, to.endOffset + checkpointOffsets[i] - start);
+		to.endOffset += endOffset - start;
+		to.size += remaining;
+		to.position = to.size;
+		to.current = null;
+		to.writes += remaining;
+		position = size; //This tape is now at its end
+		current = null;
+		return remaining;
+	}
+
+	/**
+	 * Prints the contents of the tape in order, separated by spaces.
+	 * Side effect: the tape is left rewound.
+	 */
+	@Override
+	public void print() {
+		for (rewind(); read() != null; advance())
+			System.out.print(read() + " ");
+		System.out.println();
+		rewind();
+	}
+
+	/**
+	 * Closes the file; if it is a temporary file, it is also deleted.
+	 * The tape should not be used after being closed.
+	 */
+	@Override
+	public void close() {
+		closeStreams();
+		if (temporary)
+			TempFiles.delete(file);
+	}
+
+	/*
+	 * Closes whichever stream is open, flushing anything not yet written to the file
+	 */
+	private void closeStreams() {
+		try {
+			if (in != null)
+				in.close();
+			if (out != null)
+				out.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			in = null;
+			counter = null;
+			out = null;
+			outCounter = null;
+		}
+	}
+
+	/*
+	 * Notes the offset in the file of the object at the given position, which must be after the last checkpoint
+	 */
+	private void checkpoint(long at, long offset) {
+		if (checkpoints == checkpointPositions.length) {
+			checkpointPositions = Arrays.copyOf(checkpointPositions, 2 * checkpoints);
+			checkpointOffsets = Arrays.copyOf(checkpointOffsets, 2 * checkpoints);
+		}
+		checkpointPositions[checkpoints] = at;
+		checkpointOffsets[checkpoints] = offset;
+		checkpoints++;
+	}
+
+	/*
+	 * The index of the last checkpoint at or before the given position
+	 */
+	private int checkpointBefore(long at) {
+		int found = Arrays.binarySearch(checkpointPositions, 0, checkpoints, at);
+		return found >= 0 ? found : -found - 2;
+	}
+
+	/*
+	 * Opens the file for reading at the given checkpoint, with in and counter reading from its offset
+	 */
+	private void openAt(int checkpoint) throws IOException {
+		FileInputStream file = new FileInputStream(this.file);
+		try {
+			file.getChannel().position(checkpointOffsets[checkpoint]);
+		}
+		catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		counter = new CountingInputStream(new BufferedInputStream(file, bufferSize));
+		counter.count = checkpointOffsets[checkpoint];
+		in = new DataInputStream(counter);
+	}
+
+	/*
+	 * Starts reading forward from the given position, decoding up to it from the checkpoint before it
+	 */
+	private void seek(long at) {
+		closeStreams();
+		try {
+			int checkpoint = checkpointBefore(at);
+			openAt(checkpoint);
+			for (long i = checkpointPositions[checkpoint]; i <= at; i++) {
+				currentOffset = counter.count;
+				current = codec.decode(in);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Decodes the objects from the checkpoint before the given position up to the next checkpoint into behind
+	 */
+	private void readBehind(long at) {
+		int checkpoint = checkpointBefore(at);
+		behindStart = checkpointPositions[checkpoint];
+		behindCount = (int) ((checkpoint + 1 < checkpoints ? checkpointPositions[checkpoint + 1] : size) - behindStart);
+		if (behind == null)
+			behind = new Object[CHECKPOINT_INTERVAL];
+		try {
+			openAt(checkpoint);
+			for (int i = 0; i < behindCount; i++)
+				behind[i] = codec.decode(in);
+		}
+		catch (IOException e) {
+			behindCount = 0;
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			closeStreams();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T cast(Object datum) {
+		return (T) datum;
+	}
+
+	/*
+	 * Counts the bytes read through it
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0)
+				count++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0)
+				count += read;
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false; //A reset would undo reads already counted
+		}
+	}
+
+	/*
+	 * Counts the bytes written through it, from the offset in the file it starts at
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out, long offset) {
+			super(out);
+			this.count = offset;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
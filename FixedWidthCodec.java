@@ -0,0 +1,36 @@
+package sorts.tapesort;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the objects stored on a tape to and from a fixed number of bytes, so that the position
+ * of any object in a buffer can be calculated directly. Used by the tapes that keep their contents in
+ * ByteBuffers (MappedTape and OffHeapTape).
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public interface FixedWidthCodec<T> {
+
+	/**
+	 * The number of bytes every encoded object takes up
+	 * @return The width in bytes of one encoded object
+	 */
+	public int width();
+
+	/**
+	 * Writes the datum's bytes into the buffer at the given index, without changing the buffer's position
+	 * @param datum The object to be encoded; never null
+	 * @param buffer The buffer to write to
+	 * @param index The index in the buffer of the first of the datum's width() bytes
+	 */
+	public void encode(T datum, ByteBuffer buffer, int index);
+
+	/**
+	 * Rebuilds an object from the bytes at the given index in the buffer, without changing the buffer's position
+	 * @param buffer The buffer to read from
+	 * @param index The index in the buffer of the first of the object's width() bytes
+	 * @return The decoded object
+	 */
+	public T decode(ByteBuffer buffer, int index);
+}
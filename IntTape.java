@@ -0,0 +1,158 @@
+package sorts.tapesort;
+
+/**
+ * A tape of primitive ints, for sorting numeric data without wrapping every value in an Integer
+ * or CompCounter. It behaves like Tape<Integer>, except that the data is kept in int[] chunks
+ * instead of a chain of Nodes, and since an int can never be null, atEnd() takes the place of
+ * checking read() against null.
+ * @author Nathaniel Schleicher
+ *
+ */
+public class IntTape {
+
+	/*
+	 * The number of ints held by each chunk; a power of two so a position can be split into
+	 * a chunk and an offset with a shift and a mask.
+	 */
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/*
+	 * Keeps track of how many times a tape has been written to, just like in Tape.
+	 */
+	private int writes = 0;
+
+	/*
+	 * The chunks holding the tape's data. Chunks are allocated as the tape grows and are kept
+	 * when the tape is erased, so a tape that is reused pass after pass stops allocating.
+	 */
+	private int[][] chunks = new int[1][];
+
+	/*
+	 * The number of ints on the tape
+	 */
+	private int size = 0;
+
+	/*
+	 * The current position on the tape; position == size is the empty position just past the end
+	 */
+	private int position = 0;
+
+	/**
+	 * Makes a new empty tape.
+	 */
+	public IntTape() {
+	}
+
+	/**
+	 * Makes a tape from an input int[]
+	 * The tape has the same elements in the same order as the int[]
+	 * @param intArray The ints to be put on the tape
+	 */
+	public IntTape(int[] intArray) {
+		for (int i = 0; i < intArray.length; i++) {
+			write(intArray[i]);
+			advance();
+		}
+		rewind();
+		resetWrites();
+	}
+
+	/**
+	 * Resets the current position to the beginning ("head") of the tape
+	 */
+	public void rewind() {
+		position = 0;
+	}
+
+	/**
+	 * Erases/empties the entire tape; resets the current position to the head.
+	 * The chunks are kept to be written over.
+	 */
+	public void erase() {
+		size = 0;
+		position = 0;
+	}
+
+	/**
+	 * Checks whether the current position has no datum; the equivalent of read() returning null on a Tape
+	 * @return true if the current position is past the end of the data on the tape
+	 */
+	public boolean atEnd() {
+		return position == size;
+	}
+
+	/**
+	 * Reads the current tape position and returns the int stored there.
+	 * Only meaningful if the tape is not atEnd().
+	 * @return The int stored at the current position on the tape
+	 */
+	public int read() {
+		return chunks[position >>> CHUNK_SHIFT][position & CHUNK_MASK];
+	}
+
+	/**
+	 * Advances the current position on the tape unless the current position has no datum.
+	 */
+	public void advance() {
+		if (position < size) //Does not advance if current position has no datum
+			position++;
+	}
+
+	/**
+	 * Writes the datum to the current tape position and increments the writes counter
+	 * @param datum The int to be written to the tape
+	 */
+	public void write(int datum) {
+		writes++;
+		int chunk = position >>> CHUNK_SHIFT;
+		if (chunk == chunks.length) { //Out of room for chunks; double the chunk table
+			int[][] grown = new int[chunks.length * 2][];
+			System.arraycopy(chunks, 0, grown, 0, chunks.length);
+			chunks = grown;
+		}
+		if (chunks[chunk] == null) //Makes a new chunk if needed to write to
+			chunks[chunk] = new int[CHUNK_SIZE];
+		chunks[chunk][position & CHUNK_MASK] = datum;
+		if (position == size) //Writing to the empty position at the end lengthens the tape
+			size++;
+	}
+
+	/**
+	 * Prints the contents of the tape in order, separated by spaces.
+	 */
+	public void print() {
+		for (int i = 0; i < size; i++)
+			System.out.print(chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] + " ");
+		System.out.println();
+	}
+
+	/**
+	 * Creates an int[] with the contents of the tape. Unlike Tape.toArrayList(), the current position
+	 * is not changed.
+	 * @return An int[] containing the tape's contents
+	 */
+	public int[] toArray() {
+		int[] toReturn = new int[size];
+		for (int i = 0; i < size; i += CHUNK_SIZE)
+			System.arraycopy(chunks[i >>> CHUNK_SHIFT], 0, toReturn, i, Math.min(CHUNK_SIZE, size - i));
+		return toReturn;
+	}
+
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	public int getWrites() {
+		return writes;
+	}
+
+	/**
+	 * Resets the number of writes to this tape to zero; should be done before
+	 * making measurements/testing the tapesort algorithm's efficiency.
+	 */
+	public void resetWrites() {
+		writes = 0;
+	}
+}
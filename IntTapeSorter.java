@@ -0,0 +1,328 @@
+package sorts.tapesort;
+import java.util.*;
+
+/**
+ * The same tapesorts as TapeSorter (sort(), multiSort() and balancedSort()), specialized for IntTapes
+ * so that primitive ints can be sorted without ever being boxed. The algorithms, and the way they
+ * detect ascending runs, are exactly those of TapeSorter; see there for the full explanations.
+ * The differences are only that atEnd() stands in for read() == null, and the < and <= operators
+ * stand in for compareTo().
+ * @author Nathaniel Schleicher
+ *
+ */
+public class IntTapeSorter {
+
+	/**
+	 * The complete list of tapes used to sort the data, kept only to track the number of writes.
+	 */
+	private ArrayList<IntTape> fullTapeList = new ArrayList<IntTape>();
+
+	/**
+	 * The standard 3-tape sort. See TapeSorter.sort()
+	 * @param toSort The tape containing the data to be sorted. It is altered during the method's running.
+	 * @return A tape with the data sorted on it. The returned tape is actually toSort, with the data on it sorted.
+	 */
+	public IntTape sort(IntTape toSort) {
+		toSort.rewind(); //Rewind toSort in preparation for sorting, in case it is not rewound
+		fullTapeList.add(toSort); //This is only done for tracking purposes
+		if (toSort.atEnd()) //Nothing to sort; there is no first element to prime the tapes with
+			return toSort;
+		ArrayList<IntTape> tapes = new ArrayList<IntTape>();
+		tapes.add(new IntTape());
+		fullTapeList.add(tapes.get(0));
+		tapes.add(new IntTape());
+		fullTapeList.add(tapes.get(1));
+		for(;;){
+			int currentTape = 0;
+			tapes.get(currentTape).write(toSort.read()); //Prime the tape by writing the first element on it.
+			toSort.advance();
+			//Split toSort onto the two tapes once, by ascending runs
+			while (!toSort.atEnd()) {
+				//Condition 1: start a new division to be merged later.
+				if (toSort.read() < tapes.get(currentTape).read()) {
+					currentTape = (currentTape + 1) % 2;
+					tapes.get(currentTape).advance();
+					tapes.get(currentTape).write(toSort.read());
+				}
+				//Condition 2: continue writing to the current tape.
+				else {
+					tapes.get(currentTape).advance();
+					tapes.get(currentTape).write(toSort.read());
+				}
+				toSort.advance();
+			}
+			for (IntTape tape: tapes) {//Rewind all tapes in preparation for the next step
+				tape.rewind();
+			}
+			//End case: the entirety of toSort was written to tape0, so toSort was already sorted.
+			if (tapes.get(1).atEnd()) {
+				toSort.rewind();
+				return toSort;
+			}
+			toSort.erase(); //Erase toSort in preparation for merging to it.
+			//Merging begins below; will merge until out of data on one of the tapes.
+			while(!tapes.get(0).atEnd() && !tapes.get(1).atEnd()) {
+				//Write first item onto toSort; it is the least of the first items on the other tapes.
+				if (toSort.atEnd())
+					if (tapes.get(0).read() < tapes.get(1).read()) {
+						toSort.write(tapes.get(0).read());
+						tapes.get(0).advance();
+					}
+					else {
+						toSort.write(tapes.get(1).read());
+						tapes.get(1).advance();
+					}
+				//The division on tape0 has ended; finish the current division on tape1
+				else if (tapes.get(0).read() < toSort.read()) {
+					while(!tapes.get(1).atEnd() && tapes.get(1).read() >= toSort.read()) {
+						toSort.advance();
+						toSort.write(tapes.get(1).read());
+						tapes.get(1).advance();
+					}
+					toSort.advance();
+				}
+				//Same as above, but with the tapes' roles switched
+				else if (tapes.get(1).read() < toSort.read()) {
+					while(!tapes.get(0).atEnd() && tapes.get(0).read() >= toSort.read()) {
+						toSort.advance();
+						toSort.write(tapes.get(0).read());
+						tapes.get(0).advance();
+					}
+					toSort.advance();
+				}
+				//Both tapes are within their current divisions; write the lesser of their items
+				else if (tapes.get(0).read() < tapes.get(1).read()) {//tape0's item is less
+					toSort.advance();
+					toSort.write(tapes.get(0).read());
+					tapes.get(0).advance();
+				}
+				else {//tape1's item is less
+					toSort.advance();
+					toSort.write(tapes.get(1).read());
+					tapes.get(1).advance();
+				}
+			}
+			//Once one tape is completely empty, empty the rest of the other tape onto toSort to finish this merge step
+			for(IntTape tape : tapes) {
+				for(; !tape.atEnd(); tape.advance()) {
+					toSort.advance();
+					toSort.write(tape.read());
+				}
+				tape.erase();
+			}
+			toSort.rewind();
+		}
+	}
+
+	/**
+	 * The tape sort for three or more tapes. See TapeSorter.multiSort()
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public IntTape multiSort(IntTape toSort, int numTapes) throws Exception {
+		if (numTapes < 2) //Need at least 3 tapes total to sort
+			throw new Exception("Not enough tapes");
+		toSort.rewind(); //Rewind toSort in preparation
+		fullTapeList.add(toSort); //Tracking purposes
+		if (toSort.atEnd()) //Nothing to sort
+			return toSort;
+		ArrayList<IntTape> tapes = new ArrayList<IntTape>(); //List of other tapes used
+		for (int i = 0; i < numTapes; i++) { //Filling tapes
+			tapes.add(new IntTape());
+			fullTapeList.add(tapes.get(i)); //Tracking purposes only
+		}
+		for(;;) {//Continue until sorted; will break then.
+			int currentTape = 0;
+			tapes.get(currentTape).write(toSort.read()); //Put first item on first tape in preparation for while loop
+			toSort.advance();
+			//Split step
+			while (!toSort.atEnd()) {
+				//If the next item does not follow from the one currently on the tape, switch to the next tape
+				if (toSort.read() < tapes.get(currentTape).read()) {
+					currentTape = (currentTape + 1) % numTapes;
+				}
+				tapes.get(currentTape).advance();
+				tapes.get(currentTape).write(toSort.read());
+				toSort.advance();
+			}
+			for (IntTape tape: tapes) {//Rewind split tapes to prepare for merging
+				tape.rewind();
+			}
+			//End Case: toSort was sorted, so it was all written to tape 0
+			if (tapes.get(1).atEnd()) {
+				toSort.rewind();
+				return toSort;
+			}
+			toSort.erase(); //Erase toSort in preparation for merging to it.
+
+			//Which tapes still have items on them to be merged in the current merge section
+			int[] activeTapes = new int[tapes.size()];
+			int nullCount = 0; //The number of empty tapes
+			for (int i = 0; i < activeTapes.length; i++)
+				if (tapes.get(i).atEnd()) {
+					nullCount++;
+					activeTapes[i] = 0;
+				}
+				else
+					activeTapes[i] = 1;
+			//Merge step; repeat until tapes have been merged back to toSort
+			for(;;) {
+				int minTape = 0;
+				int i = 0;
+				for (; i < tapes.size(); i++)//Find the first active tape
+					if (activeTapes[i] == 1)
+						break;
+				minTape = i;
+
+				if (minTape == tapes.size()) { //There is no active tape
+					//Make all non-empty tapes active to prepare for next step of merging
+					for (i = 0; i < tapes.size(); i++) {
+						if (!tapes.get(i).atEnd()) {
+							activeTapes[i] = 1;
+						}
+					}
+					continue;
+				}
+
+				//Find the actual minTape
+				for (; i < activeTapes.length; i++)
+					if (activeTapes[i] == 1 && tapes.get(i).read() < tapes.get(minTape).read()) {
+						minTape = i;
+					}
+				//Write the next item to toSort; advance the tape that just wrote
+				toSort.advance();
+				toSort.write(tapes.get(minTape).read());
+				tapes.get(minTape).advance();
+
+				if (tapes.get(minTape).atEnd()) {//The tape is empty
+					nullCount++;
+					activeTapes[minTape] = 0;
+					if (nullCount == activeTapes.length) //End case for the merge step: all tapes are empty
+						break;
+				}
+				//The tape has entered a new merge section, which must wait until the next merge.
+				else if (tapes.get(minTape).read() < toSort.read()) {
+					activeTapes[minTape] = 0;
+				}
+			}
+
+			//Prepare for next splitting step
+			for(IntTape tape : tapes) {
+				tape.erase();
+			}
+			toSort.rewind();
+		}
+	}
+
+	/**
+	 * The balanced tape sort. See TapeSorter.balancedSort()
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort
+	 */
+	public IntTape balancedSort(IntTape toSort, int numTapes) {
+		toSort.rewind(); //Prepare for sorting
+		if (numTapes < 2) //Need at least 2 sets of 2 tapes for a balanced tape sort
+			throw new IllegalArgumentException("Not enough tapes");
+		if (toSort.atEnd()) //Nothing to sort
+			return toSort;
+		ArrayList<IntTape> from = new ArrayList<IntTape>(); //list of tapes to write "from"
+		from.add(toSort);
+		for (int i = 1; i < numTapes; i++)
+			from.add(new IntTape());
+		ArrayList<IntTape> to = new ArrayList<IntTape>(); //list of tapes to write "to"
+		for (int i = 0; i < numTapes; i++)
+			to.add(new IntTape());
+
+		//Entirely for tracking purposes.
+		for (IntTape tape : from)
+			fullTapeList.add(tape);
+		for (IntTape tape : to)
+			fullTapeList.add(tape);
+
+		int activeToTape = 0; //Which tape we are writing to
+		int activeFromTapes[] = new int[numTapes]; //Which tapes are being sorted from
+
+		int nullCount = numTapes - 1; //Only toSort is not empty at the start
+		activeFromTapes[0] = 1;
+		for (int i = 1; i < numTapes; i++)
+			activeFromTapes[i] = 0;
+
+		//Continue to merge/split until the data is sorted.
+		for (;;) {
+			int i = 0;
+			int minTape = 0;
+			for (; i < numTapes; i++) { //Find the first active from tape
+				if (activeFromTapes[i] == 1)
+					break;
+			}
+			minTape = i;
+			if (minTape == numTapes) { //No more active from tapes; move to the next set of merges on the next "to" tape
+				activeToTape = (activeToTape + 1) % numTapes;
+				for (int j = 0; j < numTapes; j++) {
+					if (!from.get(j).atEnd())
+						activeFromTapes[j] = 1;
+				}
+				continue;
+			}
+			for (; i < numTapes; i++) { //Find the actual minTape
+				if (activeFromTapes[i] == 1 && from.get(i).read() <= from.get(minTape).read())
+					minTape = i;
+			}
+			//Write the min value to the active "to" tape
+			to.get(activeToTape).advance();
+			to.get(activeToTape).write(from.get(minTape).read());
+			from.get(minTape).advance();
+			if (from.get(minTape).atEnd()) { //The from tape is empty
+				activeFromTapes[minTape] = 0;
+				nullCount++;
+				if (nullCount == numTapes) {//All "from" tapes have been emptied
+
+					//End case: all values have been merged to one tape
+					to.get(1).rewind();
+					if (to.get(1).atEnd())
+						break;
+
+					//Swap the from and to tapes.
+					ArrayList<IntTape> temp = from;
+					from = to;
+					to = temp;
+
+					nullCount = 0;
+					for (int j = 0; j < numTapes; j++) {
+						from.get(j).rewind();
+						if (from.get(j).atEnd()) {
+							nullCount++;
+							activeFromTapes[j] = 0;
+						}
+						else
+							activeFromTapes[j] = 1;
+					}
+					for (IntTape tape : to)
+						tape.erase();
+					activeToTape = 0;
+				}
+			}
+			//The tape's next value does not follow from the one just written; it has entered a new merge section
+			else if (from.get(minTape).read() < to.get(activeToTape).read()) {
+				activeFromTapes[minTape] = 0;
+			}
+		}
+		to.get(0).rewind();
+		return to.get(0);
+	}
+
+	/**
+	 * The number of writes done by this IntTapeSorter object, summed over every tape it has used.
+	 * @return The number of total writes done by this IntTapeSorter object.
+	 */
+	public int getTotalWrites() {
+		int totalWrites = 0;
+		for (IntTape tape : fullTapeList)
+			totalWrites += tape.getWrites();
+		return totalWrites;
+	}
+}
@@ -0,0 +1,235 @@
+package sorts.tapesort;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A class to simulate a tape-style datastructure for testing tapesort algorithms,
+ * kept on the heap as a linked list of Nodes
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape (e.g., Integer)
+ */
+public class LinkedTape<T> implements Tape<T> {
+	
+	/*
+	 * Keeps track of how many times a tape has been written to;
+	 * Used because this project seeks to compare performance of tapesort algorithms
+	 * by number of writes.
+	 */
+	private int writes = 0;
+	
+	/*
+	 * The number of objects on the tape
+	 */
+	private long size = 0;
+	
+	/*
+	 * Makes a new empty tape.
+	 */
+	public LinkedTape() {
+		this.head = new Node<T>();
+		this.current = this.head;
+	}
+	
+	/*
+	 * Makes a new tape with head Node containing the passed object
+	 */
+	public LinkedTape(T head) {
+		this.head = new Node<T>(head);
+		this.current = this.head;
+		this.size = head != null ? 1 : 0;
+	}
+	
+	/*
+	 * Makes a tape from an input int[]
+	 * The tape has the same elements in the same order as the int[]
+	 */
+	public LinkedTape<Integer> intTape (Integer[] intArray) {
+		LinkedTape<Integer> toReturn = new LinkedTape<Integer>();
+		for (int i = 0; i < intArray.length; i++) {
+			toReturn.write(intArray[i]);
+			toReturn.advance();
+		}
+		toReturn.rewind();
+		return toReturn;
+	}
+	
+	/*
+	 * Makes a tape from an input int[], keeping the elements in order,
+	 * but instead of storing the ints in Integer objects, stores them in
+	 * CompCounter objects (see CompCounter class)
+	 */
+	public LinkedTape<CompCounter> compTape (int[] intArray) {
+		LinkedTape<CompCounter> toReturn = new LinkedTape<CompCounter>();
+		for (int i = 0; i < intArray.length; i++) {
+			toReturn.write(new CompCounter(intArray[i]));
+			toReturn.advance();
+		}
+		toReturn.rewind();
+		toReturn.resetWrites();
+		return toReturn;
+	}
+	
+	/**
+	 * Makes a new empty LinkedTape
+	 * @return A new empty tape
+	 */
+	@Override
+	public Tape<T> blank() {
+		return new LinkedTape<T>();
+	}
+	
+	/**
+	 * Resets the current position to the beginning ("head") of the tape
+	 */
+	@Override
+	public void rewind() {
+		current = head;
+	}
+	
+	/**
+	 * Erases/empties the entire tape; resets the current position to the head.
+	 * The tape's Nodes are kept, emptied, and advance() moves onto them again as the tape is rewritten, so a tape
+	 * erased and rewritten on every pass of a sort only makes new Nodes while it is longer than it has been before.
+	 */
+	@Override
+	public void erase() {
+		for (Node<T> now = head; now != null; now = now.next) //Past any null written in the middle, to the last Node
+			now.datum = null;
+		this.current = this.head;
+		this.size = 0;
+	}
+	
+	/**
+	 * Reads the current tape position and returns the object stored there
+	 * @return The object stored at the current position on the tape
+	 */
+	@Override
+	public T read() {
+		return current.datum;
+	}
+	
+	/**
+	 * Advances the current position on the tape unless the current position has no datum.
+	 */
+	@Override
+	public void advance() {
+		if (current.datum == null) //Does not advance if current position has no datum
+			return;
+		if (current.next == null) { //Makes new node if needed to advance to; after erase(), the old ones are reused
+			current.next = new Node<T>();
+			current.next.previous = current;
+		}
+		current = current.next;
+	}
+	
+	/**
+	 * Moves the current position back one Node; from the head, onto an empty Node before it
+	 */
+	@Override
+	public void retreat() {
+		if (current == beforeHead) //Does not move back past the position before the head
+			return;
+		current = current.previous != null ? current.previous : beforeHead;
+	}
+	
+	/**
+	 * Writes the datum to the current tape position and increments the writes counter
+	 * @param datum The object to be written to the tape
+	 */
+	@Override
+	public void write(T datum) {
+		writes++;
+		if (current.datum == null && datum != null) //Writing to the empty position at the end lengthens the tape
+			size++;
+		else if (current.datum != null && datum == null)
+			size--;
+		current.datum = datum;
+	}
+	
+	/**
+	 * The number of objects on the tape
+	 * @return The number of objects on the tape
+	 */
+	@Override
+	public long length() {
+		return size;
+	}
+	
+	/**
+	 * Prints the contents of the tape in order, separated by spaces.
+	 * Output relies on toString methods of the objects on the tape
+	 */
+	@Override
+	public void print() {
+		for (Node<T> now = head; now.datum != null; now = now.next) {
+			System.out.print(now.datum + " ");
+			if (now.next == null)
+				break;
+		}
+		System.out.println();
+
+	}
+	
+	/**
+	 * Iterates over the contents of the tape in order, following the Nodes from the head.
+	 * The current position is not changed.
+	 * @return An iterator over the objects on the tape
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private Node<T> now = head;
+
+			@Override
+			public boolean hasNext() {
+				return now != null && now.datum != null;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				T datum = now.datum;
+				now = now.next;
+				return datum;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	@Override
+	public int getWrites() {
+		return writes;
+	}
+	
+	/**
+	 * Resets the number of writes to this tape to zero; should be done before
+	 * making measurements/testing the tapesort algorithm's efficiency.
+	 */
+	@Override
+	public void resetWrites() {
+		writes = 0;
+	}
+	
+	/**
+	 * The first node of the tape
+	 */
+	public Node<T> head;
+	
+	/**
+	 * The current node of the tape
+	 */
+	public Node<T> current;
+	
+	/*
+	 * The empty position before the head, which retreat() moves onto from the head. It is not linked to the tape,
+	 * and has no datum, so advance() does not move from it.
+	 */
+	private final Node<T> beforeHead = new Node<T>();
+	
+}
\ No newline at end of file
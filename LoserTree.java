@@ -0,0 +1,147 @@
+package sorts.tapesort;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A tournament ("loser") tree for finding which of k tapes has the least current item, used by the
+ * merges in TapeSorter. Each tape is a leaf of the tree, and each node inside the tree remembers the loser
+ * of the match played there, so when the winning tape advances to its next item, only the matches on the
+ * path from its leaf to the root are replayed: about log2(k) comparisons per item written, rather than the
+ * k - 1 comparisons needed to scan every tape. This is what makes sorting with many tapes worthwhile.
+ * As in the merges, a tape can be active or not; an inactive tape (one that is empty, or has come to
+ * the end of its run in the current merge section) loses every match.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects stored on the tapes
+ */
+public class LoserTree<T> {
+
+	/*
+	 * The order the items are merged in
+	 */
+	private final Comparator<? super T> order;
+
+	/*
+	 * The number of leaves (tapes) in the tree
+	 */
+	private final int k;
+
+	/*
+	 * The loser of the match at each node inside the tree. Nodes are numbered from 1 (the root), with
+	 * node n's children at 2n and 2n + 1; the leaves are nodes k to 2k - 1, tape i being leaf k + i.
+	 */
+	private final int[] losers;
+
+	/*
+	 * The winners of the matches at each node, only used while building the tree
+	 */
+	private final int[] winners;
+
+	/*
+	 * Which tapes are active
+	 */
+	private final boolean[] active;
+
+	/*
+	 * The tapes currently in the tree
+	 */
+	private List<Tape<T>> tapes;
+
+	/*
+	 * The winner of the whole tree
+	 */
+	private int winner = 0;
+
+	/**
+	 * Makes a tree for merging up to k tapes of Comparable items, in their natural order
+	 * @param k The most tapes to be merged at once; must be at least 1
+	 * @return A new tree
+	 */
+	public static <T extends Comparable<? super T>> LoserTree<T> natural(int k) {
+		return new LoserTree<T>(k, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * Makes a tree for merging up to k tapes, whose items are in the given order
+	 * @param k The most tapes to be merged at once; must be at least 1
+	 * @param order The order the items are merged in
+	 */
+	public LoserTree(int k, Comparator<? super T> order) {
+		this.order = order;
+		this.k = k;
+		this.losers = new int[k];
+		this.winners = new int[2 * k];
+		this.active = new boolean[k];
+	}
+
+	/**
+	 * Starts a new merge section: every non-empty tape in the list becomes active, and the tree is rebuilt
+	 * from the tapes' current items.
+	 * @param tapes The tapes to merge; at most k of them. Tapes are identified by their index in this list.
+	 * @return The number of active tapes; 0 means all the tapes are empty
+	 */
+	public int activate(List<Tape<T>> tapes) {
+		this.tapes = tapes;
+		int count = 0;
+		for (int i = 0; i < k; i++) {
+			active[i] = i < tapes.size() && tapes.get(i).read() != null;
+			if (active[i])
+				count++;
+		}
+		for (int i = 0; i < k; i++)
+			winners[k + i] = i;
+		for (int n = k - 1; n >= 1; n--) { //Play every match, from the bottom of the tree up
+			int a = winners[2 * n];
+			int b = winners[2 * n + 1];
+			if (beats(a, b)) {
+				winners[n] = a;
+				losers[n] = b;
+			}
+			else {
+				winners[n] = b;
+				losers[n] = a;
+			}
+		}
+		winner = winners[1];
+		return count;
+	}
+
+	/**
+	 * The tape whose current item is the least of all the active tapes' items
+	 * @return The index of that tape, or -1 if no tape is active (the merge section is over)
+	 */
+	public int winner() {
+		return active[winner] ? winner : -1;
+	}
+
+	/**
+	 * Replays the winner's matches after its tape has been advanced. Must be called after each time the
+	 * winning tape is advanced, before winner() is called again.
+	 * @param stillActive Whether the winning tape is still active, i.e. not empty and still in its run
+	 */
+	public void replay(boolean stillActive) {
+		active[winner] = stillActive;
+		int current = winner;
+		for (int n = (k + current) >> 1; n >= 1; n >>= 1) {
+			if (beats(losers[n], current)) { //The previous loser wins this time; the current tape stays here
+				int loser = current;
+				current = losers[n];
+				losers[n] = loser;
+			}
+		}
+		winner = current;
+	}
+
+	/*
+	 * Whether tape a wins its match against tape b. Inactive tapes always lose, and ties go to the lower index.
+	 */
+	private boolean beats(int a, int b) {
+		if (!active[a])
+			return false;
+		if (!active[b])
+			return true;
+		int comparison = order.compare(tapes.get(a).read(), tapes.get(b).read());
+		return comparison < 0 || (comparison == 0 && a < b);
+	}
+}
@@ -0,0 +1,277 @@
+package sorts.tapesort;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A tape kept in a file of fixed-width records, which is memory-mapped one window at a time.
+ * Reading, advancing and writing only move an index within the mapped window, and the objects are
+ * encoded and decoded straight from the mapped memory, without being copied through a stream buffer.
+ * A new window is only mapped when the current position leaves the old one, so a tape of any length
+ * can be streamed through without the heap growing.
+ * Only the object at the current position is kept on the heap.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public class MappedTape<T> implements Tape<T>, Closeable {
+
+	/*
+	 * Keeps track of how many times the tape has been written to, as in LinkedTape
+	 */
+	private int writes = 0;
+
+	/*
+	 * Size in bytes of the mapped windows if none is given
+	 */
+	private static final int DEFAULT_WINDOW_BYTES = 1 << 24;
+
+	/*
+	 * The file holding the tape's contents
+	 */
+	private final File file;
+
+	/*
+	 * Whether the file was made by this tape, and so should be deleted when the tape is closed
+	 */
+	private final boolean temporary;
+
+	/*
+	 * The channel the windows are mapped from
+	 */
+	private final FileChannel channel;
+
+	/*
+	 * Converts the objects on the tape to and from bytes
+	 */
+	private final FixedWidthCodec<T> codec;
+
+	/*
+	 * The number of bytes each object takes up in the file
+	 */
+	private final int width;
+
+	/*
+	 * The number of objects that fit in one window
+	 */
+	private final int windowElements;
+
+	/*
+	 * The currently mapped window, or null if none has been mapped yet
+	 */
+	private MappedByteBuffer window = null;
+
+	/*
+	 * The position on the tape of the first object in the window
+	 */
+	private long windowStart = 0;
+
+	/*
+	 * The number of objects on the tape
+	 */
+	private long size = 0;
+
+	/*
+	 * The current position on the tape; position == size is the empty position just past the end
+	 */
+	private long position = 0;
+
+	/*
+	 * The object at the current position, or null if the current position has no datum
+	 */
+	private T current = null;
+
+	/**
+	 * Makes a new empty tape backed by a temporary file, which is deleted when the tape is closed
+	 * or the JVM exits.
+	 * @param codec Converts the objects on the tape to and from bytes
+	 */
+	public MappedTape(FixedWidthCodec<T> codec) {
+		this(TempFiles.create(null), true, codec, DEFAULT_WINDOW_BYTES);
+	}
+
+	/**
+	 * Makes a new empty tape backed by the given file. Anything already in the file is erased.
+	 * @param file The file to keep the tape's contents in
+	 * @param codec Converts the objects on the tape to and from bytes
+	 * @param windowBytes The size in bytes of each mapped window; rounded down to a whole number of objects
+	 */
+	public MappedTape(File file, FixedWidthCodec<T> codec, int windowBytes) {
+		this(file, false, codec, windowBytes);
+	}
+
+	private MappedTape(File file, boolean temporary, FixedWidthCodec<T> codec, int windowBytes) {
+		this.file = file;
+		this.temporary = temporary;
+		this.codec = codec;
+		this.width = codec.width();
+		this.windowElements = Math.max(1, windowBytes / width);
+		try {
+			this.channel = new RandomAccessFile(file, "rw").getChannel();
+			channel.truncate(0); //Start from an empty file
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Makes a new empty tape backed by a temporary file in the same directory as this tape's file,
+	 * using the same codec and window size.
+	 * @return A new empty MappedTape
+	 */
+	@Override
+	public Tape<T> blank() {
+		return new MappedTape<T>(TempFiles.create(file.getAbsoluteFile().getParentFile()), true, codec, windowElements * width);
+	}
+
+	/*
+	 * Makes sure the window contains the given position, mapping a new window if it does not,
+	 * and returns the index in the window of the object at that position
+	 */
+	private int locate(long at) {
+		if (window == null || at < windowStart || at >= windowStart + windowElements) {
+			windowStart = at - at % windowElements;
+			try {
+				window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart * width, (long) windowElements * width);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return (int) (at - windowStart) * width;
+	}
+
+	/*
+	 * Decodes the object at the given position; locate() is called first since it may replace the window
+	 */
+	private T decodeAt(long at) {
+		int index = locate(at);
+		return codec.decode(window, index);
+	}
+
+	/**
+	 * Resets the current position to the beginning ("head") of the tape
+	 */
+	@Override
+	public void rewind() {
+		position = 0;
+		current = size > 0 ? decodeAt(0) : null;
+	}
+
+	/**
+	 * Erases/empties the entire tape; resets the current position to the head.
+	 * The file is kept to be written over.
+	 */
+	@Override
+	public void erase() {
+		size = 0;
+		position = 0;
+		current = null;
+	}
+
+	/**
+	 * Reads the current tape position and returns the object stored there
+	 * @return The object stored at the current position on the tape
+	 */
+	@Override
+	public T read() {
+		return current;
+	}
+
+	/**
+	 * Advances the current position on the tape unless the current position has no datum.
+	 */
+	@Override
+	public void advance() {
+		if (current == null) //Does not advance if current position has no datum
+			return;
+		position++;
+		current = position < size ? decodeAt(position) : null;
+	}
+
+	/**
+	 * Moves the current position back one object; from the head, onto the empty position before it (position -1)
+	 */
+	@Override
+	public void retreat() {
+		if (position < 0) //Does not move back past the position before the head
+			return;
+		position--;
+		current = position >= 0 ? decodeAt(position) : null;
+	}
+
+	/**
+	 * Writes the datum to the current tape position and increments the writes counter
+	 * @param datum The object to be written to the tape
+	 */
+	@Override
+	public void write(T datum) {
+		writes++;
+		int index = locate(position);
+		codec.encode(datum, window, index);
+		if (position == size) //Writing to the empty position at the end lengthens the tape
+			size++;
+		current = datum;
+	}
+
+	/**
+	 * The number of objects on the tape
+	 * @return The number of objects on the tape
+	 */
+	@Override
+	public long length() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	@Override
+	public int getWrites() {
+		return writes;
+	}
+
+	/**
+	 * Resets the number of writes to this tape to zero
+	 */
+	@Override
+	public void resetWrites() {
+		writes = 0;
+	}
+
+	/**
+	 * Prints the contents of the tape in order, separated by spaces.
+	 * The current position is not changed.
+	 */
+	@Override
+	public void print() {
+		for (long i = 0; i < size; i++)
+			System.out.print(decodeAt(i) + " ");
+		System.out.println();
+	}
+
+	/**
+	 * Cuts the file down to the tape's contents and closes it; if it is a temporary file, it is also deleted.
+	 * The tape should not be used after being closed.
+	 */
+	@Override
+	public void close() {
+		window = null;
+		try {
+			channel.truncate(size * width);
+			channel.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (temporary)
+			TempFiles.delete(file);
+	}
+}
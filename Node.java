@@ -6,7 +6,7 @@ package sorts.tapesort;
  *
  * @param <T> The class of the objects stored on the tape
  */
-public class Node<T extends Comparable<T>> {
+public class Node<T> {
 	
 	/**
 	 * Makes a new empty Node
@@ -35,4 +35,9 @@ public class Node<T extends Comparable<T>> {
 	 */
 	public Node<T> next;
 	
+	/**
+	 * The previous Node on the tape; null for the head
+	 */
+	public Node<T> previous;
+	
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package sorts.tapesort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * A tape kept off the heap, in direct ByteBuffer segments taken from a SegmentPool. Each object is
+ * stored as a fixed-width record encoded by a FixedWidthCodec, so there is no Node or boxed object
+ * per position, and only the object at the current position is kept on the heap.
+ * erase() gives the tape's segments back to the pool instead of leaving a chain of Nodes for the
+ * garbage collector, and the tapes made by blank() share the pool, so the segments are reused by
+ * whichever tape is written to next.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public class OffHeapTape<T> implements Tape<T> {
+
+	/*
+	 * Keeps track of how many times the tape has been written to, as in LinkedTape
+	 */
+	private int writes = 0;
+
+	/*
+	 * Where the tape's segments come from and go back to
+	 */
+	private final SegmentPool pool;
+
+	/*
+	 * Converts the objects on the tape to and from bytes
+	 */
+	private final FixedWidthCodec<T> codec;
+
+	/*
+	 * The number of bytes each object takes up
+	 */
+	private final int width;
+
+	/*
+	 * The number of objects that fit in one segment
+	 */
+	private final int perSegment;
+
+	/*
+	 * The segments holding the tape's contents, in order
+	 */
+	private final ArrayList<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+	/*
+	 * The number of objects on the tape
+	 */
+	private long size = 0;
+
+	/*
+	 * The current position on the tape; position == size is the empty position just past the end
+	 */
+	private long position = 0;
+
+	/*
+	 * The object at the current position, or null if the current position has no datum
+	 */
+	private T current = null;
+
+	/**
+	 * Makes a new empty tape with its own pool of segments
+	 * @param codec Converts the objects on the tape to and from bytes
+	 */
+	public OffHeapTape(FixedWidthCodec<T> codec) {
+		this(codec, new SegmentPool());
+	}
+
+	/**
+	 * Makes a new empty tape using segments from the given pool
+	 * @param codec Converts the objects on the tape to and from bytes
+	 * @param pool The pool to take segments from; its segments must be able to hold at least one object
+	 */
+	public OffHeapTape(FixedWidthCodec<T> codec, SegmentPool pool) {
+		this.pool = pool;
+		this.codec = codec;
+		this.width = codec.width();
+		this.perSegment = pool.getSegmentBytes() / width;
+		if (perSegment == 0)
+			throw new IllegalArgumentException("Segments of " + pool.getSegmentBytes() + " bytes cannot hold a " + width + " byte object");
+	}
+
+	/**
+	 * Makes a new empty tape with the same codec, sharing this tape's segment pool
+	 * @return A new empty OffHeapTape
+	 */
+	@Override
+	public Tape<T> blank() {
+		return new OffHeapTape<T>(codec, pool);
+	}
+
+	/*
+	 * Decodes the object at the given position
+	 */
+	private T decodeAt(long at) {
+		return codec.decode(segments.get((int) (at / perSegment)), (int) (at % perSegment) * width);
+	}
+
+	/**
+	 * Resets the current position to the beginning ("head") of the tape
+	 */
+	@Override
+	public void rewind() {
+		position = 0;
+		current = size > 0 ? decodeAt(0) : null;
+	}
+
+	/**
+	 * Erases/empties the entire tape, giving its segments back to the pool; resets the current position to the head
+	 */
+	@Override
+	public void erase() {
+		for (ByteBuffer segment : segments)
+			pool.release(segment);
+		segments.clear();
+		size = 0;
+		position = 0;
+		current = null;
+	}
+
+	/**
+	 * Reads the current tape position and returns the object stored there
+	 * @return The object stored at the current position on the tape
+	 */
+	@Override
+	public T read() {
+		return current;
+	}
+
+	/**
+	 * Advances the current position on the tape unless the current position has no datum.
+	 */
+	@Override
+	public void advance() {
+		if (current == null) //Does not advance if current position has no datum
+			return;
+		position++;
+		current = position < size ? decodeAt(position) : null;
+	}
+
+	/**
+	 * Moves the current position back one object; from the head, onto the empty position before it (position -1)
+	 */
+	@Override
+	public void retreat() {
+		if (position < 0) //Does not move back past the position before the head
+			return;
+		position--;
+		current = position >= 0 ? decodeAt(position) : null;
+	}
+
+	/**
+	 * Writes the datum to the current tape position and increments the writes counter
+	 * @param datum The object to be written to the tape
+	 */
+	@Override
+	public void write(T datum) {
+		writes++;
+		int segment = (int) (position / perSegment);
+		if (segment == segments.size()) //Takes a new segment if needed to write to
+			segments.add(pool.acquire());
+		codec.encode(datum, segments.get(segment), (int) (position % perSegment) * width);
+		if (position == size) //Writing to the empty position at the end lengthens the tape
+			size++;
+		current = datum;
+	}
+
+	/**
+	 * The number of objects on the tape
+	 * @return The number of objects on the tape
+	 */
+	@Override
+	public long length() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	@Override
+	public int getWrites() {
+		return writes;
+	}
+
+	/**
+	 * Resets the number of writes to this tape to zero
+	 */
+	@Override
+	public void resetWrites() {
+		writes = 0;
+	}
+
+	/**
+	 * Prints the contents of the tape in order, separated by spaces.
+	 * The current position is not changed.
+	 */
+	@Override
+	public void print() {
+		for (long i = 0; i < size; i++)
+			System.out.print(decodeAt(i) + " ");
+		System.out.println();
+	}
+}
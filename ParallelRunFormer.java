@@ -0,0 +1,158 @@
+package sorts.tapesort;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forms the initial runs for the tapesorts by sorting the data in memory, one chunk at a time, on a ForkJoinPool.
+ * The tape being sorted is read into chunks of chunkSize items, and each chunk is sorted by a task of its own
+ * while the next chunks are being read, so as many chunks are sorted at once as the pool has threads. The sorted
+ * chunks are written to the tapes as runs, in the order they were read, each onto the tape after the one the
+ * previous run went to. This way the CPU-bound part of sorting a large tape is spread over every core, and the
+ * runs are chunkSize long whatever the data, before the (sequential) merges begin.
+ * Reading and writing the tapes is only ever done by the thread calling distribute(), so the tapes need not be
+ * thread-safe. At most (parallelism + 1) chunks are held in memory at once.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects stored on the tapes
+ */
+public class ParallelRunFormer<T> implements RunFormer<T> {
+
+	/*
+	 * The number of items in each chunk, and so in each run
+	 */
+	private final int chunkSize;
+
+	/*
+	 * The order the items are sorted in
+	 */
+	private final Comparator<? super T> order;
+
+	/*
+	 * The pool the chunks are sorted on
+	 */
+	private final ForkJoinPool pool;
+
+	/*
+	 * The comparisons made sorting the chunks. Each task counts its own, and adds them here when it is done.
+	 */
+	private final LongAdder comparisons = new LongAdder();
+
+	/**
+	 * Makes a run former sorting chunks of chunkSize Comparable items on the common ForkJoinPool, in their natural order
+	 * @param chunkSize The number of items to sort in memory at once on each thread; must be at least 1
+	 * @return A new run former
+	 */
+	public static <T extends Comparable<? super T>> ParallelRunFormer<T> natural(int chunkSize) {
+		return new ParallelRunFormer<T>(chunkSize, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * Makes a run former sorting chunks of chunkSize items on the common ForkJoinPool, in the given order
+	 * @param chunkSize The number of items to sort in memory at once on each thread; must be at least 1
+	 * @param order The order the items are sorted in; it is used by several threads at once
+	 */
+	public ParallelRunFormer(int chunkSize, Comparator<? super T> order) {
+		this(chunkSize, order, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Makes a run former sorting chunks of chunkSize items on the given pool, in the given order
+	 * @param chunkSize The number of items to sort in memory at once on each thread; must be at least 1
+	 * @param order The order the items are sorted in; it is used by several threads at once
+	 * @param pool The pool to sort the chunks on
+	 */
+	public ParallelRunFormer(int chunkSize, Comparator<? super T> order, ForkJoinPool pool) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be at least 1");
+		this.chunkSize = chunkSize;
+		this.order = order;
+		this.pool = pool;
+	}
+
+	/**
+	 * Reads source from its current position to its end, writing the sorted chunks onto the tapes in turn,
+	 * each run onto the tape after the one the previous run went to. The tapes are left at their ends.
+	 * @param source The tape to read the items from
+	 * @param tapes The tapes to write the runs to; should be empty, and there should be at least 2 of them
+	 * @return The number of runs written
+	 */
+	@Override
+	public int distribute(Tape<T> source, List<Tape<T>> tapes) {
+		int inFlight = Math.max(1, pool.getParallelism()); //The most chunks being sorted while the next is read
+		ArrayDeque<ForkJoinTask<Object[]>> sorting = new ArrayDeque<ForkJoinTask<Object[]>>();
+		int currentTape = 0;
+		int runs = 0;
+		for (;;) {
+			Object[] chunk = readChunk(source);
+			if (chunk.length > 0)
+				sorting.add(pool.submit(new ChunkSort(chunk)));
+			//Write out the oldest chunks once enough are being sorted, or all of them once source is used up
+			while (!sorting.isEmpty() && (chunk.length == 0 || sorting.size() > inFlight)) {
+				for (Object item : sorting.poll().join())
+					TapeSorter.append(tapes.get(currentTape), item(item));
+				currentTape = (currentTape + 1) % tapes.size();
+				runs++;
+			}
+			if (chunk.length == 0)
+				return runs;
+		}
+	}
+
+	/**
+	 * The number of comparisons made sorting the chunks, by every call to distribute() so far
+	 * @return The number of comparisons made
+	 */
+	public long getComparisons() {
+		return comparisons.sum();
+	}
+
+	/*
+	 * Reads up to chunkSize items from source; the array is empty once source is used up
+	 */
+	private Object[] readChunk(Tape<T> source) {
+		Object[] chunk = new Object[chunkSize];
+		int size = 0;
+		for (; size < chunkSize && source.read() != null; source.advance())
+			chunk[size++] = source.read();
+		return size == chunkSize ? chunk : Arrays.copyOf(chunk, size);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T item(Object item) {
+		return (T) item;
+	}
+
+	/*
+	 * Sorts one chunk, counting its comparisons on its own thread
+	 */
+	private class ChunkSort extends RecursiveTask<Object[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Object[] chunk;
+
+		ChunkSort(Object[] chunk) {
+			this.chunk = chunk;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected Object[] compute() {
+			CountingComparator<T> counter = new CountingComparator<T>(order);
+			try {
+				Arrays.sort((T[]) chunk, counter);
+			}
+			finally {
+				comparisons.add(counter.getCount());
+			}
+			return chunk;
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package sorts.tapesort;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Does one merge/split pass of balancedSort() on several threads, so that reading the "from" tapes, choosing the
+ * next item, and writing the "to" tapes all happen at once, and a slow tape only holds up its own thread.
+ * Each "from" tape has a reader thread of its own, which reads the tape ahead into an SpscQueue. The merge itself
+ * runs on the calling thread, taking items from those queues through a loser tree exactly as balancedSort()
+ * does, and putting them on one more queue, which a writer thread drains onto the "to" tapes, moving on to the
+ * next "to" tape whenever the merge starts a new section. Each tape is only ever used by one thread during a
+ * pass, and the pass waits for every thread to finish before returning, so the tapes need not be thread-safe.
+ * The comparisons are all made on the calling thread.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects stored on the tapes
+ */
+public class PipelinedMerge<T> implements Closeable {
+
+	/*
+	 * The number of items each queue holds if no capacity is given
+	 */
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/*
+	 * Put on the output queue when the merge starts a new section, to move the writer on to the next "to" tape
+	 */
+	private static final Object SWITCH = new Object();
+
+	/*
+	 * Put on a queue after its last item
+	 */
+	private static final Object END = new Object();
+
+	/*
+	 * The order the items are merged in
+	 */
+	private final Comparator<? super T> order;
+
+	/*
+	 * Finds the queue with the next item to merge
+	 */
+	private final LoserTree<T> tree;
+
+	/*
+	 * The number of items each queue holds
+	 */
+	private final int capacity;
+
+	/*
+	 * Runs the readers and the writer; its threads are kept from one pass to the next
+	 */
+	private final ExecutorService threads;
+
+	/**
+	 * Makes a pipeline for merging from up to numTapes tapes at once
+	 * @param numTapes The most "from" tapes merged at once
+	 * @param order The order the items are merged in; only used on the thread calling merge()
+	 */
+	public PipelinedMerge(int numTapes, Comparator<? super T> order) {
+		this(numTapes, order, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Makes a pipeline for merging from up to numTapes tapes at once
+	 * @param numTapes The most "from" tapes merged at once
+	 * @param order The order the items are merged in; only used on the thread calling merge()
+	 * @param capacity The number of items each tape's queue holds
+	 */
+	public PipelinedMerge(int numTapes, Comparator<? super T> order, int capacity) {
+		this.order = order;
+		this.tree = new LoserTree<T>(numTapes, order);
+		this.capacity = capacity;
+		final AtomicInteger count = new AtomicInteger();
+		this.threads = Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task, "tape-pipeline-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Merges the "from" tapes, from their current positions to their ends, onto the "to" tapes: each section
+	 * (one ascending run from every tape) is merged onto the "to" tape after the one the last section went to,
+	 * starting with "to" tape 0. The "from" tapes are left at their ends, and the "to" tapes at their ends.
+	 * @param from The tapes to merge from
+	 * @param to The tapes to merge to; should be empty
+	 * @return The number of sections merged, i.e. the number of runs written to the "to" tapes
+	 */
+	public int merge(List<Tape<T>> from, List<Tape<T>> to) {
+		List<SpscQueue<Object>> queues = new ArrayList<SpscQueue<Object>>();
+		List<Future<?>> tasks = new ArrayList<Future<?>>();
+		List<Tape<T>> inputs = new ArrayList<Tape<T>>();
+		for (Tape<T> tape : from) {
+			SpscQueue<Object> queue = new SpscQueue<Object>(capacity);
+			queues.add(queue);
+			tasks.add(threads.submit(guard(() -> read(tape, queue), queues)));
+		}
+		SpscQueue<Object> out = new SpscQueue<Object>(capacity);
+		queues.add(out);
+		tasks.add(threads.submit(guard(() -> write(out, to), queues)));
+		Throwable failure = null;
+		int sections = 0;
+		try {
+			for (int i = 0; i < from.size(); i++)
+				inputs.add(new QueueReader<T>(queues.get(i)));
+			sections = mergeSections(inputs, out);
+		}
+		catch (RuntimeException | Error e) {
+			failure = e;
+			abort(queues);
+		}
+		boolean interrupted = false;
+		for (Future<?> task : tasks) { //Wait for every thread, so no tape is still in use once the pass is over
+			for (;;) {
+				try {
+					task.get();
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+				catch (ExecutionException e) {
+					//A thread's own failure is the cause; the others' failures only follow from it
+					if (failure == null || failure instanceof CancellationException)
+						failure = e.getCause();
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+		if (failure != null)
+			throw new IllegalStateException("Pipelined merge failed", failure);
+		return sections;
+	}
+
+	/**
+	 * Stops the pipeline's threads once they are idle; the pipeline should not be used after being closed
+	 */
+	@Override
+	public void close() {
+		threads.shutdown();
+	}
+
+	/*
+	 * The merge thread: merges the queues one section at a time, as balancedSort() merges its tapes; returns the sections merged
+	 */
+	private int mergeSections(List<Tape<T>> inputs, SpscQueue<Object> out) {
+		int sections = 0;
+		while (tree.activate(inputs) > 0) {
+			for (int minTape = tree.winner(); minTape >= 0; minTape = tree.winner()) {
+				Tape<T> input = inputs.get(minTape);
+				T item = input.read();
+				out.put(item);
+				input.advance();
+				tree.replay(input.read() != null && order.compare(input.read(), item) >= 0);
+			}
+			out.put(SWITCH); //The section is over; the next one goes to the next "to" tape
+			sections++;
+		}
+		out.put(END);
+		return sections;
+	}
+
+	/*
+	 * A reader thread: reads the tape ahead into its queue
+	 */
+	private static <T> void read(Tape<T> tape, SpscQueue<Object> queue) {
+		for (; tape.read() != null; tape.advance())
+			queue.put(tape.read());
+		queue.put(END);
+	}
+
+	/*
+	 * The writer thread: writes the merged items onto the "to" tapes
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> void write(SpscQueue<Object> out, List<Tape<T>> to) {
+		int current = 0;
+		for (Object item = out.take(); item != END; item = out.take()) {
+			if (item == SWITCH)
+				current = (current + 1) % to.size();
+			else
+				TapeSorter.append(to.get(current), (T) item);
+		}
+	}
+
+	/*
+	 * Runs the task, aborting every queue if it fails, so no other thread is left waiting on it
+	 */
+	private static Runnable guard(Runnable task, List<SpscQueue<Object>> queues) {
+		return () -> {
+			try {
+				task.run();
+			}
+			catch (RuntimeException | Error e) {
+				abort(queues);
+				throw e;
+			}
+		};
+	}
+
+	private static void abort(List<SpscQueue<Object>> queues) {
+		for (SpscQueue<Object> queue : queues)
+			queue.abort();
+	}
+
+	/*
+	 * Reads a queue filled by a reader thread as though it were the tape being read, so the loser tree can merge it.
+	 * Only reading and advancing are supported.
+	 */
+	private static class QueueReader<T> implements Tape<T> {
+
+		private final SpscQueue<Object> queue;
+
+		private T current;
+
+		QueueReader(SpscQueue<Object> queue) {
+			this.queue = queue;
+			this.current = next();
+		}
+
+		@Override
+		public T read() {
+			return current;
+		}
+
+		@Override
+		public void advance() {
+			if (current == null) //Does not advance if current position has no datum
+				return;
+			current = next();
+		}
+
+		@SuppressWarnings("unchecked")
+		private T next() {
+			Object item = queue.take();
+			return item == END ? null : (T) item;
+		}
+
+		@Override
+		public void write(T datum) {
+			throw new UnsupportedOperationException("A queue can only be read");
+		}
+
+		@Override
+		public void rewind() {
+			throw new UnsupportedOperationException("A queue can only be read");
+		}
+
+		@Override
+		public void erase() {
+			throw new UnsupportedOperationException("A queue can only be read");
+		}
+
+		@Override
+		public Tape<T> blank() {
+			throw new UnsupportedOperationException("A queue can only be read");
+		}
+
+		@Override
+		public int getWrites() {
+			return 0;
+		}
+
+		@Override
+		public void resetWrites() {
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package sorts.tapesort;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Forms the initial runs for the tapesorts by replacement selection, instead of using the ascending runs
+ * already in the data. Up to heapSize items are kept in memory in a heap. The least item in the heap is
+ * written to the current run, and the next item from the tape being sorted takes its place; if that item
+ * is less than the one just written, it cannot go in the current run, so it is marked for the next one.
+ * When every item in the heap is marked for the next run, the current run ends and the next one begins.
+ * On random data the runs average twice heapSize in length, compared to about 2 for the natural ascending
+ * runs, which saves many passes in the merges that follow.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects stored on the tapes
+ */
+public class ReplacementSelection<T> implements RunFormer<T> {
+
+	/*
+	 * The most items kept in memory at once
+	 */
+	private final int heapSize;
+
+	/*
+	 * The order the items are sorted in
+	 */
+	private final Comparator<? super T> order;
+
+	/*
+	 * The heap of items; the least is at index 0, and an item's children are at 2i + 1 and 2i + 2.
+	 * Items are ordered first by the run they belong in, then by order.
+	 */
+	private final Object[] items;
+
+	/*
+	 * The run each item in the heap belongs in
+	 */
+	private final int[] runOf;
+
+	/*
+	 * The number of items in the heap
+	 */
+	private int size = 0;
+
+	/**
+	 * Makes a run former holding up to heapSize Comparable items in memory, forming runs in their natural order
+	 * @param heapSize The number of items to keep in memory; must be at least 1
+	 * @return A new run former
+	 */
+	public static <T extends Comparable<? super T>> ReplacementSelection<T> natural(int heapSize) {
+		return new ReplacementSelection<T>(heapSize, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * Makes a run former holding up to heapSize items in memory, forming runs ascending by the given order
+	 * @param heapSize The number of items to keep in memory; must be at least 1
+	 * @param order The order the items are sorted in
+	 */
+	public ReplacementSelection(int heapSize, Comparator<? super T> order) {
+		if (heapSize < 1)
+			throw new IllegalArgumentException("Heap size must be at least 1");
+		this.heapSize = heapSize;
+		this.order = order;
+		this.items = new Object[heapSize];
+		this.runOf = new int[heapSize];
+	}
+
+	/**
+	 * Reads source from its current position to its end, writing the runs formed onto the tapes in turn,
+	 * each run onto the tape after the one the previous run went to. The tapes are left at their ends.
+	 * @param source The tape to read the items from
+	 * @param tapes The tapes to write the runs to; should be empty, and there should be at least 2 of them
+	 * @return The number of runs written
+	 */
+	@Override
+	public int distribute(Tape<T> source, List<Tape<T>> tapes) {
+		//Fill the heap; everything read now can go in the first run
+		for (; size < heapSize && source.read() != null; source.advance()) {
+			items[size] = source.read();
+			runOf[size] = 0;
+			siftUp(size);
+			size++;
+		}
+		int currentRun = 0;
+		int currentTape = 0;
+		int runs = size > 0 ? 1 : 0;
+		while (size > 0) {
+			if (runOf[0] != currentRun) { //Only items for the next run are left; start it on the next tape
+				currentRun = runOf[0];
+				currentTape = (currentTape + 1) % tapes.size();
+				runs++;
+			}
+			T least = item(0);
+			TapeSorter.append(tapes.get(currentTape), least);
+			if (source.read() != null) { //Replace the item just written with the next one from source
+				T next = source.read();
+				source.advance();
+				items[0] = next;
+				runOf[0] = order.compare(next, least) < 0 ? currentRun + 1 : currentRun;
+			}
+			else { //source is used up; the heap just shrinks
+				size--;
+				items[0] = items[size];
+				runOf[0] = runOf[size];
+				items[size] = null;
+			}
+			siftDown(0);
+		}
+		return runs;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T item(int i) {
+		return (T) items[i];
+	}
+
+	/*
+	 * Whether the item at i comes before the item at j
+	 */
+	private boolean before(int i, int j) {
+		if (runOf[i] != runOf[j])
+			return runOf[i] < runOf[j];
+		return order.compare(item(i), item(j)) < 0;
+	}
+
+	private void swap(int i, int j) {
+		Object item = items[i];
+		items[i] = items[j];
+		items[j] = item;
+		int run = runOf[i];
+		runOf[i] = runOf[j];
+		runOf[j] = run;
+	}
+
+	private void siftUp(int i) {
+		while (i > 0 && before(i, (i - 1) / 2)) {
+			swap(i, (i - 1) / 2);
+			i = (i - 1) / 2;
+		}
+	}
+
+	private void siftDown(int i) {
+		for (;;) {
+			int least = i;
+			int child = 2 * i + 1;
+			if (child < size && before(child, least))
+				least = child;
+			if (child + 1 < size && before(child + 1, least))
+				least = child + 1;
+			if (least == i)
+				return;
+			swap(i, least);
+			i = least;
+		}
+	}
+}
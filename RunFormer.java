@@ -0,0 +1,23 @@
+package sorts.tapesort;
+
+import java.util.List;
+
+/**
+ * Forms the initial runs for the tapesorts, in place of the first split, which only finds the ascending
+ * runs already in the data. multiSort() and balancedSort() can be given one to make longer runs to start
+ * with, which saves passes in the merges that follow.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects stored on the tapes
+ */
+public interface RunFormer<T> {
+
+	/**
+	 * Reads source from its current position to its end, writing the runs formed onto the tapes in turn,
+	 * each run onto the tape after the one the previous run went to. The tapes are left at their ends.
+	 * @param source The tape to read the items from
+	 * @param tapes The tapes to write the runs to; should be empty, and there should be at least 2 of them
+	 * @return The number of runs written
+	 */
+	int distribute(Tape<T> source, List<Tape<T>> tapes);
+}
@@ -0,0 +1,196 @@
+package sorts.tapesort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The "split" step of sort() and multiSort(): splits a tape onto several others, one run at a time, each run
+ * going to the tape after the one the previous run went to. A run is a group of items in ascending order;
+ * whenever an item descends from the previous one, it must start a new run. This alone makes every item of
+ * reverse-ordered data a run of its own, so, as TimSort does for arrays, a strictly descending group of items
+ * is also taken as a run: it is held in memory, up to maxReversed items, and written out reversed.
+ * A descending run too long to hold is spilled, as it is, onto a tape of its own, and read back from it
+ * backward, so it is still written out as one ascending run, if the splitter was given a TapeFactory for
+ * such tapes and the tapes it makes can be read backward (see Tape.retreat()). Otherwise it is reversed in
+ * pieces of maxReversed items, each a run of its own, so a reversed tape of n items is split into
+ * n / maxReversed runs, which the sort must then merge.
+ * Only strictly descending groups are reversed, so equal items keep their order.
+ * One splitter is made for each sort, and its buffer is reused on every pass.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects stored on the tapes
+ */
+public class RunSplitter<T> {
+
+	/**
+	 * The most items of a descending run held in memory to be reversed, unless another bound is given
+	 */
+	public static final int DEFAULT_MAX_REVERSED = 4096;
+
+	/*
+	 * The order the runs ascend in
+	 */
+	private final Comparator<? super T> order;
+
+	/*
+	 * The most items of a descending run held in memory at once; longer runs are spilled, or reversed in pieces of this size
+	 */
+	private final int maxReversed;
+
+	/*
+	 * Makes the tape long descending runs are spilled onto; null if they are always reversed in pieces
+	 */
+	private final TapeFactory<T> spillTapes;
+
+	/*
+	 * The tape long descending runs are spilled onto; made the first time one is found
+	 */
+	private Tape<T> spill = null;
+
+	/*
+	 * Whether the spill tape has been made, or found not to be able to be read backward
+	 */
+	private boolean spillTried = false;
+
+	/*
+	 * Holds a descending run while it is read, to be written out reversed
+	 */
+	private final ArrayList<T> descending = new ArrayList<T>();
+
+	/*
+	 * Whether the last split reversed any items
+	 */
+	private boolean reversed = false;
+
+	/**
+	 * Makes a splitter for Comparable items in natural order, holding up to DEFAULT_MAX_REVERSED items of a descending run
+	 * @return A new splitter
+	 */
+	public static <T extends Comparable<? super T>> RunSplitter<T> natural() {
+		return new RunSplitter<T>(Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * Makes a splitter for items in the given order, holding up to DEFAULT_MAX_REVERSED items of a descending run
+	 * @param order The order the runs ascend in
+	 */
+	public RunSplitter(Comparator<? super T> order) {
+		this(order, DEFAULT_MAX_REVERSED);
+	}
+
+	/**
+	 * Makes a splitter for items in the given order
+	 * @param order The order the runs ascend in
+	 * @param maxReversed The most items of a descending run to hold in memory at once; 1 or less turns reversing off
+	 */
+	public RunSplitter(Comparator<? super T> order, int maxReversed) {
+		this(order, maxReversed, null);
+	}
+
+	/**
+	 * Makes a splitter for items in the given order, which spills descending runs of more than maxReversed items
+	 * onto a tape made by spillTapes, so they are reversed whole. The tape is only made once such a run is found,
+	 * and is only used if it can be read backward; it is erased after each run spilled onto it.
+	 * @param order The order the runs ascend in
+	 * @param maxReversed The most items of a descending run to hold in memory at once; 1 or less turns reversing off
+	 * @param spillTapes Makes the tape to spill long descending runs onto; if null, they are reversed in pieces
+	 */
+	public RunSplitter(Comparator<? super T> order, int maxReversed, TapeFactory<T> spillTapes) {
+		this.order = order;
+		this.maxReversed = maxReversed;
+		this.spillTapes = spillTapes;
+	}
+
+	/**
+	 * Splits source from its current position onto the tapes, which should be empty, leaving source at its end.
+	 * @param source The tape to split
+	 * @param tapes The tapes to split onto; the runs go to them in turn, so tape i gets about runs / tapes.size() of them
+	 * @return The number of runs written; 0 if source had nothing left on it
+	 */
+	public int split(Tape<T> source, List<Tape<T>> tapes) {
+		reversed = false;
+		int runs = 0;
+		int currentTape = 0;
+		while (source.read() != null) { //Continue splitting until we've made it completely through source
+			T datum = source.read();
+			source.advance();
+			//If the item follows from the one currently on the tape, it carries on that tape's run
+			if (runs > 0 && order.compare(datum, tapes.get(currentTape).read()) >= 0) {
+				TapeSorter.append(tapes.get(currentTape), datum);
+				continue;
+			}
+			//Otherwise it starts a new run, on the next tape
+			if (runs++ > 0)
+				currentTape = (currentTape + 1) % tapes.size();
+			Tape<T> tape = tapes.get(currentTape);
+			//If the run descends, read it (up to maxReversed items) and write it out reversed, so it ascends.
+			//As in TimSort, which way a run goes is only decided at its start; otherwise the last item of an
+			//ascending run and the first of the next would be taken for a descending run of their own.
+			if (maxReversed > 1 && source.read() != null && order.compare(source.read(), datum) < 0) {
+				descending.add(datum);
+				do {
+					descending.add(source.read());
+					source.advance();
+				} while (descending.size() < maxReversed && source.read() != null
+						&& order.compare(source.read(), descending.get(descending.size() - 1)) < 0);
+				if (source.read() != null && order.compare(source.read(), descending.get(descending.size() - 1)) < 0
+						&& spillTape() != null) //The run goes on past what can be held
+					spillReversed(source, tape);
+				else
+					for (int i = descending.size() - 1; i >= 0; i--)
+						TapeSorter.append(tape, descending.get(i));
+				descending.clear();
+				reversed = true;
+			}
+			else
+				TapeSorter.append(tape, datum);
+		}
+		return runs;
+	}
+
+	/*
+	 * Writes the descending run begun in the buffer, and going on on source, onto tape reversed: the run is
+	 * written out onto the spill tape as it is, then read back from its end
+	 */
+	private void spillReversed(Tape<T> source, Tape<T> tape) {
+		for (T datum : descending)
+			TapeSorter.append(spill, datum);
+		while (source.read() != null && order.compare(source.read(), spill.read()) < 0) {
+			TapeSorter.append(spill, source.read());
+			source.advance();
+		}
+		for (; spill.read() != null; spill.retreat())
+			TapeSorter.append(tape, spill.read());
+		spill.erase();
+	}
+
+	/*
+	 * The tape to spill long descending runs onto, made the first time it is needed; null if there is none,
+	 * or it cannot be read backward
+	 */
+	private Tape<T> spillTape() {
+		if (!spillTried && spillTapes != null) {
+			spillTried = true;
+			Tape<T> tape = spillTapes.newTape();
+			try { //Moving back from the head of an empty tape tells whether it can be read backward, changing nothing
+				tape.retreat();
+				tape.rewind();
+				spill = tape;
+			}
+			catch (UnsupportedOperationException e) {
+				//Long runs are reversed in pieces instead
+			}
+		}
+		return spill;
+	}
+
+	/**
+	 * Whether the last split reversed any items. If it did not, and it wrote a single run, the source was
+	 * already sorted; if it did, the run on the first tape is the sorted data, and the source is not.
+	 * @return true if the last split wrote any run reversed
+	 */
+	public boolean reversed() {
+		return reversed;
+	}
+}
@@ -0,0 +1,79 @@
+package sorts.tapesort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of equally sized direct ByteBuffers ("segments") shared by OffHeapTapes. A tape takes
+ * segments from the pool as it grows and gives them all back when it is erased, so the segments
+ * freed by one tape's erase() are reused by the next tape written to, and the memory in use stays
+ * close to the amount of data on the tapes. Direct buffers are kept outside the heap, so none of it
+ * is seen by the garbage collector.
+ * @author Nathaniel Schleicher
+ *
+ */
+public class SegmentPool {
+
+	/*
+	 * Size in bytes of each segment if none is given
+	 */
+	private static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+
+	/*
+	 * Size in bytes of each segment
+	 */
+	private final int segmentBytes;
+
+	/*
+	 * Segments not in use by any tape
+	 */
+	private final ArrayDeque<ByteBuffer> free = new ArrayDeque<ByteBuffer>();
+
+	/**
+	 * Makes a new empty pool of 1 MiB segments
+	 */
+	public SegmentPool() {
+		this(DEFAULT_SEGMENT_BYTES);
+	}
+
+	/**
+	 * Makes a new empty pool
+	 * @param segmentBytes The size in bytes of each segment
+	 */
+	public SegmentPool(int segmentBytes) {
+		this.segmentBytes = segmentBytes;
+	}
+
+	/**
+	 * The size of the segments handed out by this pool
+	 * @return The size in bytes of each segment
+	 */
+	public int getSegmentBytes() {
+		return segmentBytes;
+	}
+
+	/**
+	 * Takes a segment from the pool, allocating a new one only if none are free
+	 * @return A segment; its contents are undefined
+	 */
+	public synchronized ByteBuffer acquire() {
+		ByteBuffer segment = free.poll();
+		return segment != null ? segment : ByteBuffer.allocateDirect(segmentBytes);
+	}
+
+	/**
+	 * Gives a segment back to the pool to be reused
+	 * @param segment A segment acquired from this pool, which must no longer be used by the caller
+	 */
+	public synchronized void release(ByteBuffer segment) {
+		free.push(segment);
+	}
+
+	/**
+	 * The number of segments waiting to be reused
+	 * @return The number of free segments in the pool
+	 */
+	public synchronized int getFreeSegments() {
+		return free.size();
+	}
+}
@@ -0,0 +1,101 @@
+package sorts.tapesort;
+
+/**
+ * The sort chosen by SortPlanner for a tape, with the arguments to call it with and the number of writes
+ * it is expected to make. TapeSorter.sortAuto() carries it out.
+ * @author Nathaniel Schleicher
+ *
+ */
+public class SortPlan {
+
+	/**
+	 * The sorts a plan can choose from
+	 */
+	public enum Strategy {
+		/** sort(), with 3 tapes */
+		SORT,
+		/** multiSort(), with numTapes + 1 tapes, forming the first runs by replacement selection if heapSize is not 0 */
+		MULTI_SORT,
+		/** balancedSort(), with 2 * numTapes tapes, forming the first runs by replacement selection if heapSize is not 0 */
+		BALANCED_SORT,
+		/** polyphaseSort(), with numTapes + 1 tapes */
+		POLYPHASE_SORT,
+		/** cascadeSort(), with numTapes + 1 tapes */
+		CASCADE_SORT
+	}
+
+	/*
+	 * The sort to use
+	 */
+	private final Strategy strategy;
+
+	/*
+	 * The numTapes argument of the sort; 2 for sort(), which takes none
+	 */
+	private final int numTapes;
+
+	/*
+	 * The heapSize argument of multiSort() or balancedSort(); 0 for the other sorts
+	 */
+	private final int heapSize;
+
+	/*
+	 * The number of writes the sort is expected to make
+	 */
+	private final long estimatedWrites;
+
+	/**
+	 * Makes a plan
+	 * @param strategy The sort to use
+	 * @param numTapes The numTapes argument of the sort; 2 for sort(), which takes none
+	 * @param heapSize The heapSize argument of multiSort() or balancedSort(); 0 for the other sorts
+	 * @param estimatedWrites The number of writes the sort is expected to make
+	 */
+	public SortPlan(Strategy strategy, int numTapes, int heapSize, long estimatedWrites) {
+		this.strategy = strategy;
+		this.numTapes = numTapes;
+		this.heapSize = heapSize;
+		this.estimatedWrites = estimatedWrites;
+	}
+
+	/**
+	 * The sort to use
+	 * @return The sort to use
+	 */
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * The numTapes argument of the sort
+	 * @return The numTapes argument of the sort; 2 for sort(), which takes none
+	 */
+	public int getNumTapes() {
+		return numTapes;
+	}
+
+	/**
+	 * The heapSize argument of multiSort() or balancedSort()
+	 * @return The number of objects to form runs with in memory; 0 for the other sorts, or if none are to be
+	 */
+	public int getHeapSize() {
+		return heapSize;
+	}
+
+	/**
+	 * The number of writes the sort is expected to make, as getTotalWrites() would count them
+	 * @return The number of writes the sort is expected to make
+	 */
+	public long getEstimatedWrites() {
+		return estimatedWrites;
+	}
+
+	/**
+	 * Describes the plan, e.g. "MULTI_SORT(numTapes=4, heapSize=1000), about 2000000 writes"
+	 * @return A description of the plan
+	 */
+	@Override
+	public String toString() {
+		return strategy + "(numTapes=" + numTapes + ", heapSize=" + heapSize + "), about " + estimatedWrites + " writes";
+	}
+}
@@ -0,0 +1,261 @@
+package sorts.tapesort;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses which of the tapesorts to sort a tape with, and with what arguments, for TapeSorter.sortAuto().
+ * The head of the tape is sampled to see how presorted the data is: the number of runs in the sample is
+ * taken to carry on at the same rate through the rest of the tape. From the estimated number of runs, and
+ * the tapes and memory available, the number of writes each sort would make is worked out, and the sort
+ * with the fewest is chosen: sort(), multiSort() and balancedSort() write all the data once per pass, and
+ * their passes follow from how many runs each pass merges into one; polyphaseSort() and cascadeSort() copy
+ * only part of the data in each phase, so their phases are simulated, run by run, with every run taken to
+ * be the same length. multiSort() and balancedSort() are also considered with their first runs formed by
+ * replacement selection, if there is memory for it; its runs are estimated to be the memory's size
+ * divided by how often the data descends (so, twice the memory's size on random data).
+ * readBackwardSort() and the sorts forming runs in parallel are not considered: the first needs tapes that
+ * can be read backward, which the planner cannot tell, and the second writes no less than replacement selection.
+ * For the same reason, descending runs are counted as if they were reversed in pieces, as RunSplitter does on
+ * tapes which cannot be read backward, so on those which can, the estimates for sort() and multiSort() of data
+ * with long descending runs are too high.
+ * @author Nathaniel Schleicher
+ *
+ */
+public class SortPlanner {
+
+	/**
+	 * The number of objects sampled from the head of the tape
+	 */
+	public static final int SAMPLE_SIZE = 4096;
+
+	/**
+	 * Chooses the sort which should make the fewest writes sorting the tape with the given resources.
+	 * The tape is sampled, and left rewound; if it does not know its length, it is read through to count it.
+	 * @param toSort The tape to be sorted
+	 * @param resources The tapes and memory the sort may use
+	 * @param order The order the data is to be sorted in
+	 * @return The sort to use, with its arguments
+	 */
+	public static <T> SortPlan plan(Tape<T> toSort, SortResources resources, Comparator<? super T> order) {
+		//Find the length of the tape, and sample its head
+		long length = toSort.length();
+		toSort.rewind();
+		if (length < 0) //The tape does not know its length, so it must be counted
+			for (length = 0; toSort.read() != null; toSort.advance())
+				length++;
+		toSort.rewind();
+		ArrayList<T> sample = new ArrayList<T>();
+		for (; sample.size() < SAMPLE_SIZE && toSort.read() != null; toSort.advance())
+			sample.add(toSort.read());
+		toSort.rewind();
+		if (length == 0)
+			return new SortPlan(SortPlan.Strategy.SORT, 2, 0, 0);
+
+		//Count the runs in the sample: ascending runs, for balancedSort(), polyphaseSort() and cascadeSort(), and
+		//runs as a RunSplitter would find them, reversing descending runs, for sort() and multiSort()
+		int descents = 0;
+		for (int i = 1; i < sample.size(); i++)
+			if (order.compare(sample.get(i), sample.get(i - 1)) < 0)
+				descents++;
+		double splitRuns = 0;
+		T last = null; //The last item of the current run, or the first of a reversed one
+		for (int i = 0; i < sample.size(); ) {
+			T datum = sample.get(i++);
+			if (splitRuns > 0 && order.compare(datum, last) >= 0) { //Carries on the run
+				last = datum;
+				continue;
+			}
+			splitRuns++;
+			last = datum;
+			int reversed = 1; //Skip over the rest of the run if it descends, as RunSplitter reverses it
+			while (reversed < RunSplitter.DEFAULT_MAX_REVERSED && i < sample.size() && order.compare(sample.get(i), sample.get(i - 1)) < 0) {
+				i++;
+				reversed++;
+			}
+			//A descending run still going at the end of the sample is likely to go on, and RunSplitter cuts
+			//descending runs into pieces of DEFAULT_MAX_REVERSED, so it counts as part of a run for every item
+			if (i == sample.size() && reversed > 1 && sample.size() < length)
+				splitRuns += reversed / (double) RunSplitter.DEFAULT_MAX_REVERSED;
+		}
+		double descentRate = sample.size() > 1 ? descents / (double) (sample.size() - 1) : 0;
+		long ascendingRuns = extrapolate(length, sample.size(), descents + 1);
+		long reversedRuns = extrapolate(length, sample.size(), splitRuns);
+
+		int tapes = resources.getTapes();
+		int memory = resources.getMemory();
+		SortPlan best = new SortPlan(SortPlan.Strategy.SORT, 2, 0, passWrites(length, reversedRuns, 2, 2));
+		best = cheaper(best, new SortPlan(SortPlan.Strategy.MULTI_SORT, tapes - 1, 0, passWrites(length, reversedRuns, tapes - 1, 2)));
+		if (tapes >= 4)
+			best = cheaper(best, new SortPlan(SortPlan.Strategy.BALANCED_SORT, tapes / 2, 0, passWrites(length, ascendingRuns, tapes / 2, 1)));
+		if (memory > 0) {
+			//Replacement selection's runs are never shorter than the ascending runs already in the data
+			long selectedRuns = Math.max(1, Math.min(ascendingRuns, (long) Math.ceil(length * descentRate / memory)));
+			//multiSort() merges runs formed in memory back to toSort even if there is only one
+			best = cheaper(best, new SortPlan(SortPlan.Strategy.MULTI_SORT, tapes - 1, memory, Math.max(2 * length, passWrites(length, selectedRuns, tapes - 1, 2))));
+			if (tapes >= 4)
+				best = cheaper(best, new SortPlan(SortPlan.Strategy.BALANCED_SORT, tapes / 2, memory, passWrites(length, selectedRuns, tapes / 2, 1)));
+		}
+		best = cheaper(best, new SortPlan(SortPlan.Strategy.POLYPHASE_SORT, tapes - 1, 0, phaseWrites(length, ascendingRuns, tapes - 1, false)));
+		best = cheaper(best, new SortPlan(SortPlan.Strategy.CASCADE_SORT, tapes - 1, 0, phaseWrites(length, ascendingRuns, tapes - 1, true)));
+		return best;
+	}
+
+	/*
+	 * Estimates the runs in the whole tape from the runs in the sample, as 1 plus the number of descents
+	 * between neighboring items, which are taken to happen as often in the rest of the tape as in the sample
+	 */
+	private static long extrapolate(long length, int sampled, double runs) {
+		if (sampled <= 1)
+			return length;
+		return 1 + Math.round((length - 1) * ((runs - 1) / (double) (sampled - 1)));
+	}
+
+	/*
+	 * Returns the plan expected to make fewer writes; the first, if they are expected to make as many
+	 */
+	private static SortPlan cheaper(SortPlan best, SortPlan other) {
+		return other.getEstimatedWrites() < best.getEstimatedWrites() ? other : best;
+	}
+
+	/*
+	 * The writes made by a sort writing all the data writesPerPass times for each pass it makes (twice for sort()
+	 * and multiSort(), which split and merge separately, once for balancedSort()), with each pass merging up to
+	 * fanIn runs into one, until there is one run. The first split is made in any case; for balancedSort(),
+	 * it is the first pass.
+	 */
+	private static long passWrites(long length, long runs, int fanIn, int writesPerPass) {
+		int passes = 0;
+		for (long merged = 1; merged < runs; merged *= fanIn)
+			passes++;
+		if (writesPerPass == 1) //balancedSort()'s first pass splits the data to its first runs
+			return length * (1 + passes);
+		return passes == 0 ? length : length * writesPerPass * passes;
+	}
+
+	/*
+	 * The writes made by polyphaseSort() (or, if cascade is true, cascadeSort()) on the given number of runs, all
+	 * the same length: the runs are distributed as the sort would, dummies and all, and the phases simulated on
+	 * the numbers of runs and their lengths. The runs on each tape are kept as blocks of runs of the same length,
+	 * so the simulation takes no longer for many runs than for few.
+	 */
+	private static long phaseWrites(long length, long realRuns, int numTapes, boolean cascade) {
+		if (realRuns <= 1) //The split is all there is
+			return length;
+		int runCount = (int) Math.min(realRuns, Integer.MAX_VALUE);
+		int[] runs = new int[numTapes + 1];
+		int[] dummies = new int[numTapes + 1];
+		for (int i = 0; i < numTapes; i++) {
+			runs[i] = 1;
+			dummies[i] = 1;
+		}
+		int currentTape = 0;
+		for (int r = 0; r < runCount; r++) {
+			dummies[currentTape]--;
+			if (r < runCount - 1)
+				currentTape = TapeSorter.nextTape(currentTape, runs, dummies, cascade);
+		}
+		//The dummies on each tape come before its real runs, each of which holds length / runCount items
+		List<ArrayDeque<Block>> tapes = new ArrayList<ArrayDeque<Block>>();
+		for (int i = 0; i <= numTapes; i++) {
+			tapes.add(new ArrayDeque<Block>());
+			add(tapes.get(i), dummies[i], 0);
+			add(tapes.get(i), runs[i] - dummies[i], length / (double) runCount);
+		}
+		double writes = length; //The split
+		int outTape = numTapes;
+		ArrayList<Integer> feeding = new ArrayList<Integer>();
+		for (;;) {
+			feeding.clear();
+			int totalRuns = 0;
+			for (int i = 0; i <= numTapes; i++) {
+				totalRuns += runs[i];
+				if (runs[i] > 0)
+					feeding.add(i);
+			}
+			if (totalRuns == 1)
+				return Math.round(writes);
+			if (cascade) { //As in cascadeSort(): merge until the tape with the fewest runs runs out, then merge the rest
+				feeding.sort((a, b) -> runs[b] - runs[a]);
+				while (feeding.size() > 1) {
+					writes += merge(tapes, feeding, outTape, runs[feeding.get(feeding.size() - 1)], runs);
+					while (!feeding.isEmpty() && runs[feeding.get(feeding.size() - 1)] == 0)
+						outTape = feeding.remove(feeding.size() - 1);
+				}
+			}
+			else { //As in polyphaseSort(): merge from every other tape until one runs out, which is merged to next
+				int merges = Integer.MAX_VALUE;
+				for (int i : feeding)
+					merges = Math.min(merges, runs[i]);
+				writes += merge(tapes, feeding, outTape, merges, runs);
+				for (int i = 0; i <= numTapes; i++)
+					if (runs[i] == 0) {
+						outTape = i;
+						break;
+					}
+			}
+		}
+	}
+
+	/*
+	 * Simulates merging the given number of runs from each of the feeding tapes onto the out tape, updating the
+	 * number of runs on each. Returns the number of items written; merges of dummies write none.
+	 */
+	private static double merge(List<ArrayDeque<Block>> tapes, List<Integer> feeding, int outTape, int merges, int[] runs) {
+		double written = 0;
+		while (merges > 0) {
+			int count = merges; //Merge as many runs at once as have the same lengths on every tape
+			for (int i : feeding)
+				count = Math.min(count, tapes.get(i).peekFirst().count);
+			double items = 0;
+			for (int i : feeding) {
+				Block block = tapes.get(i).peekFirst();
+				items += block.items;
+				block.count -= count;
+				if (block.count == 0)
+					tapes.get(i).pollFirst();
+				runs[i] -= count;
+			}
+			add(tapes.get(outTape), count, items);
+			runs[outTape] += count;
+			written += count * items;
+			merges -= count;
+		}
+		return written;
+	}
+
+	/*
+	 * Adds count runs of the given number of items to the end of the tape's blocks
+	 */
+	private static void add(ArrayDeque<Block> tape, int count, double items) {
+		if (count == 0)
+			return;
+		if (!tape.isEmpty() && tape.peekLast().items == items)
+			tape.peekLast().count += count;
+		else
+			tape.addLast(new Block(count, items));
+	}
+
+	/*
+	 * A number of runs on a tape next to each other, all of the same length, in the phase simulations
+	 */
+	private static class Block {
+
+		/*
+		 * The number of runs
+		 */
+		int count;
+
+		/*
+		 * The number of items in each run; 0 for dummy runs
+		 */
+		final double items;
+
+		Block(int count, double items) {
+			this.count = count;
+			this.items = items;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package sorts.tapesort;
+
+/**
+ * What a sort may use, for TapeSorter.sortAuto() to choose a sort by: how many tapes there are, counting the
+ * tape to be sorted, and how many objects may be held in memory at once.
+ * @author Nathaniel Schleicher
+ *
+ */
+public class SortResources {
+
+	/*
+	 * The number of tapes that may be used, including the tape being sorted
+	 */
+	private final int tapes;
+
+	/*
+	 * The number of objects that may be held in memory at once
+	 */
+	private final int memory;
+
+	/**
+	 * Makes a description of the resources a sort may use
+	 * @param tapes The number of tapes that may be used, including the tape being sorted; must be at least 3
+	 * @param memory The number of objects that may be held in memory at once, to form runs with; 0 if none
+	 * @throws IllegalArgumentException if there are fewer than 3 tapes, or memory is negative
+	 */
+	public SortResources(int tapes, int memory) {
+		if (tapes < 3) //Every tapesort needs at least 3 tapes
+			throw new IllegalArgumentException("Not enough tapes");
+		if (memory < 0)
+			throw new IllegalArgumentException("Memory cannot be negative");
+		this.tapes = tapes;
+		this.memory = memory;
+	}
+
+	/**
+	 * The number of tapes that may be used
+	 * @return The number of tapes that may be used, including the tape being sorted
+	 */
+	public int getTapes() {
+		return tapes;
+	}
+
+	/**
+	 * The number of objects that may be held in memory at once
+	 * @return The number of objects that may be held in memory at once; 0 if none
+	 */
+	public int getMemory() {
+		return memory;
+	}
+}
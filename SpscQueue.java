@@ -0,0 +1,120 @@
+package sorts.tapesort;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue passing objects from exactly one producer thread to exactly one consumer thread, used by
+ * PipelinedMerge to pass items between the tape threads and the merge. The objects are kept in a ring of
+ * slots; the producer only ever moves the tail, and the consumer the head, so neither takes a lock.
+ * A thread waiting on a full or empty queue spins briefly, then yields, then parks for short spells.
+ * If either side fails, abort() wakes the other side with a CancellationException instead of leaving it waiting.
+ * @author Nathaniel Schleicher
+ *
+ * @param <E> The class of the objects passed through the queue
+ */
+public class SpscQueue<E> {
+
+	/*
+	 * The ring of slots; its length is a power of two
+	 */
+	private final Object[] slots;
+
+	/*
+	 * slots.length - 1, to find an index's slot
+	 */
+	private final int mask;
+
+	/*
+	 * The index of the next object to be taken; only moved by the consumer
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/*
+	 * The index of the next object to be put; only moved by the producer
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/*
+	 * The producer's last look at head, so it need not read it on every put
+	 */
+	private long headSeen = 0;
+
+	/*
+	 * The consumer's last look at tail, so it need not read it on every take
+	 */
+	private long tailSeen = 0;
+
+	/*
+	 * Set when the queue is given up on
+	 */
+	private volatile boolean aborted = false;
+
+	/**
+	 * Makes an empty queue holding at least capacity objects
+	 * @param capacity The most objects the queue can hold before put() waits; rounded up to a power of two
+	 */
+	public SpscQueue(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.slots = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Puts the object at the tail of the queue, waiting while the queue is full. Only to be called by the producer.
+	 * @param item The object to put; must not be null
+	 * @throws CancellationException if the queue is aborted while waiting
+	 */
+	public void put(E item) {
+		long t = tail.get();
+		if (t - headSeen == slots.length) //Full as far as we last saw; look again, and wait if it still is
+			for (int spins = 0; (headSeen = head.get()) == t - slots.length; spins++)
+				await(spins);
+		slots[(int) t & mask] = item;
+		tail.lazySet(t + 1); //Publishes the item to the consumer
+	}
+
+	/**
+	 * Takes the object at the head of the queue, waiting while the queue is empty. Only to be called by the consumer.
+	 * @return The object taken
+	 * @throws CancellationException if the queue is aborted while waiting
+	 */
+	@SuppressWarnings("unchecked")
+	public E take() {
+		long h = head.get();
+		if (h == tailSeen) //Empty as far as we last saw; look again, and wait if it still is
+			for (int spins = 0; (tailSeen = tail.get()) == h; spins++)
+				await(spins);
+		int slot = (int) h & mask;
+		E item = (E) slots[slot];
+		slots[slot] = null;
+		head.lazySet(h + 1); //Hands the slot back to the producer
+		return item;
+	}
+
+	/**
+	 * Gives up on the queue: any thread waiting on it, or waiting on it later, gets a CancellationException
+	 */
+	public void abort() {
+		aborted = true;
+	}
+
+	/*
+	 * Waits a little, longer the more times the thread has waited already
+	 */
+	private void await(int spins) {
+		if (aborted)
+			throw new CancellationException("Queue aborted");
+		if (spins < 64)
+			return;
+		if (spins < 256)
+			Thread.yield();
+		else
+			LockSupport.parkNanos(10000);
+	}
+}
@@ -1,163 +1,225 @@
 package sorts.tapesort;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * A class to simulate a tape-style datastructure for testing tapesort algorithms
+ * A tape-style datastructure for the tapesort algorithms: objects are read and written one at a time at
+ * the current position, which only moves forward, unless the tape is rewound to the beginning ("head").
+ * The position just past the last object has no datum, so read() returns null there, and advance() does
+ * not move past it; the tapesorts take advantage of this. The sorts only ever write at that position, or
+ * onto the last object, which lets a tape be kept anywhere data can be appended to: LinkedTape keeps it on
+ * the heap, FileTape in a file, MappedTape in a memory-mapped file, and OffHeapTape in direct buffers.
+ * length() and the bulk methods are optional; a tape that can do them faster than one object at a time
+ * should override them. retreat(), for reading a tape backward, is optional too, and only needed by
+ * TapeSorter.readBackwardSort(); ChunkedTape, FileTape, LinkedTape, MappedTape and OffHeapTape can do it,
+ * and so can a BufferedTape around any of them.
+ * A tape is Iterable, and can be streamed with stream(), so sorted output can be consumed one object at a time
+ * without copying it all into memory as toArrayList() does.
  * @author Nathaniel Schleicher
  *
  * @param <T> The class of the objects to be stored on the tape (e.g., Integer)
  */
-public class Tape<T extends Comparable<T>>{
-	
-	/*
-	 * Keeps track of how many times a tape has been written to;
-	 * Used because this project seeks to compare performance of tapesort algorithms
-	 * by number of writes.
-	 */
-	private int writes = 0;
-	
-	/*
-	 * Makes a new empty tape.
-	 */
-	public Tape() {
-		this.head = new Node<T>();
-		this.current = this.head;
-	}
-	
-	/*
-	 * Makes a new tape with head Node containing the passed object
+public interface Tape<T> extends Iterable<T> {
+
+	/**
+	 * Makes a new empty tape of the same kind as this one. The tapesorts use this to make
+	 * the extra tapes they sort with, unless their TapeSorter was given a TapeFactory, so a tape
+	 * keeping its data somewhere other than on the heap should return a new tape kept in the same way.
+	 * @return A new empty tape
 	 */
-	public Tape(T head) {
-		this.head = new Node<T>(head);
-		this.current = this.head;
-	}
-	
-	/*
-	 * Makes a tape from an input int[]
-	 * The tape has the same elements in the same order as the int[]
-	 */
-	public Tape<Integer> intTape (Integer[] intArray) {
-		Tape<Integer> toReturn = new Tape<Integer>();
-		for (int i = 0; i < intArray.length; i++) {
-			toReturn.write(intArray[i]);
-			toReturn.advance();
-		}
-		toReturn.rewind();
-		return toReturn;
-	}
-	
-	/*
-	 * Makes a tape from an input int[], keeping the elements in order,
-	 * but instead of storing the ints in Integer objects, stores them in
-	 * CompCounter objects (see CompCounter class)
-	 */
-	public Tape<CompCounter> compTape (int[] intArray) {
-		Tape<CompCounter> toReturn = new Tape<CompCounter>();
-		for (int i = 0; i < intArray.length; i++) {
-			toReturn.write(new CompCounter(intArray[i]));
-			toReturn.advance();
-		}
-		toReturn.rewind();
-		toReturn.resetWrites();
-		return toReturn;
-	}
-	
+	Tape<T> blank();
+
 	/**
 	 * Resets the current position to the beginning ("head") of the tape
 	 */
-	public void rewind() {
-		current = head;
-	}
-	
+	void rewind();
+
 	/**
 	 * Erases/empties the entire tape; resets the current position to the head
 	 */
-	public void erase() {
-		this.head = new Node<T>();
-		this.current = this.head;
-	}
-	
+	void erase();
+
 	/**
 	 * Reads the current tape position and returns the object stored there
-	 * @return The object stored at the current position on the tape
+	 * @return The object stored at the current position on the tape, or null if it has no datum
 	 */
-	public T read() {
-		return current.datum;
-	}
-	
+	T read();
+
 	/**
 	 * Advances the current position on the tape unless the current position has no datum.
 	 */
-	public void advance() {
-		if (current.datum == null) //Does not advance if current position has no datum
-			return;
-		if (current.next == null) { //Makes new node if needed to advance to
-			current.next = new Node<T>();
-		}
-		current = current.next;
+	void advance();
+
+	/**
+	 * Moves the current position back one object, toward the head, so the tape can be read backward from wherever
+	 * it is. From the head, it moves onto an empty position before the head, where read() returns null, like the
+	 * empty position after the last object; neither retreat() nor advance() moves from there, and it must not be
+	 * written to, but rewind() and erase() return to the head as usual.
+	 * Optional: unless overridden, it throws UnsupportedOperationException.
+	 */
+	default void retreat() {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be read backward");
 	}
-	
+
 	/**
 	 * Writes the datum to the current tape position and increments the writes counter
 	 * @param datum The object to be written to the tape
 	 */
-	public void write(T datum) {
-		writes++;
-		current.datum = datum;
+	void write(T datum);
+
+	/**
+	 * Returns the number of writes to this tape so far
+	 * @return The number of times this tape has been written to.
+	 */
+	int getWrites();
+
+	/**
+	 * Resets the number of writes to this tape to zero; should be done before
+	 * making measurements/testing the tapesort algorithm's efficiency.
+	 */
+	void resetWrites();
+
+	/**
+	 * The number of objects on the tape, if the tape keeps count of them
+	 * @return The number of objects on the tape, or -1 if it is not known
+	 */
+	default long length() {
+		return -1;
 	}
-	
+
+	/**
+	 * Reads up to length objects into the buffer, starting at the current position, and advances past them
+	 * @param buffer The array to read the objects into
+	 * @param offset The index in buffer of the first object read
+	 * @param length The most objects to read
+	 * @return The number of objects read; less than length only if the end of the tape was reached
+	 */
+	default int readInto(T[] buffer, int offset, int length) {
+		int read = 0;
+		for (; read < length && read() != null; advance())
+			buffer[offset + read++] = read();
+		return read;
+	}
+
+	/**
+	 * Writes the objects in the buffer one after another after the current position, as the tapesorts append
+	 * to a tape: the current position is advanced past its datum, if it has one, before each is written.
+	 * The current position is left on the last object written.
+	 * @param buffer The array holding the objects to write; none of them may be null
+	 * @param offset The index in buffer of the first object to write
+	 * @param length The number of objects to write
+	 */
+	default void writeFrom(T[] buffer, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			if (read() != null)
+				advance();
+			write(buffer[i]);
+		}
+	}
+
+	/**
+	 * Moves up to max objects from this tape onto the end of dest, as writeFrom() would write them, starting at
+	 * this tape's current position and advancing past them. Used by the tapesorts to drain the rest of a tape
+	 * in one call; a tape that can move blocks of objects at once should override it. dest is left on the last
+	 * object moved, or, if an override cannot tell what that object is without reading it, just past it.
+	 * @param dest The tape to move the objects to; must not be this tape
+	 * @param max The most objects to move; Long.MAX_VALUE moves the rest of the tape
+	 * @return The number of objects moved; less than max only if the end of this tape was reached
+	 */
+	default long transferTo(Tape<T> dest, long max) {
+		long moved = 0;
+		for (; moved < max && read() != null; advance(), moved++) {
+			if (dest.read() != null)
+				dest.advance();
+			dest.write(read());
+		}
+		return moved;
+	}
+
 	/**
 	 * Prints the contents of the tape in order, separated by spaces.
-	 * Output relies on toString methods of the objects on the tape
+	 * Output relies on toString methods of the objects on the tape.
+	 * Side effect: unless overridden, the tape is left rewound.
 	 */
-	public void print() {
-		for (Node<T> now = head; now.datum != null; now = now.next) {
-			System.out.print(now.datum + " ");
-			if (now.next == null)
-				break;
-		}
+	default void print() {
+		for (rewind(); read() != null; advance())
+			System.out.print(read() + " ");
 		System.out.println();
+		rewind();
+	}
+
+	/**
+	 * Iterates over the contents of the tape in order, from the head. Lazy: nothing is read until it is asked for.
+	 * Side effect: unless overridden, the tape is rewound when the iteration starts and its current position
+	 * follows the iteration, so it is left at the end of the tape once every object has been returned; the tape
+	 * must not be used otherwise until the iteration is over. LinkedTape and ChunkedTape iterate over their data
+	 * without moving the current position.
+	 * @return An iterator over the objects on the tape
+	 */
+	@Override
+	default Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private boolean started = false;
+
+			@Override
+			public boolean hasNext() {
+				if (!started) { //Rewinds on first use, not when made, so a stream does not move the tape until it runs
+					rewind();
+					started = true;
+				}
+				return read() != null;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				T datum = read();
+				advance();
+				return datum;
+			}
+		};
+	}
+
+	/**
+	 * Splits the contents of the tape, in order, from the head, as iterator() walks them; sized if the tape knows
+	 * its length. Unless overridden, splitting it for a parallel stream copies batches of objects into arrays.
+	 * @return A spliterator over the objects on the tape
+	 */
+	@Override
+	default Spliterator<T> spliterator() {
+		long length = length();
+		if (length < 0)
+			return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+		return Spliterators.spliterator(iterator(), length, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
 
+	/**
+	 * A sequential stream of the contents of the tape in order, from the head, with the same side effects as
+	 * iterator(): e.g., tape.stream().map(String::valueOf).forEach(writer::println) writes out a sorted tape
+	 * without holding it in memory.
+	 * @return A stream of the objects on the tape
+	 */
+	default Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
 	}
-	
+
 	/**
-	 * Creates an ArrayList with the contents of the tape 
+	 * Creates an ArrayList with the contents of the tape
 	 * Side effect: current position will be set to the end of the tape.
 	 * @return An ArrayList containing the tape's contents
 	 */
-	public ArrayList<T> toArrayList() {
+	default ArrayList<T> toArrayList() {
 		ArrayList<T> toReturn = new ArrayList<T>();
 		for (rewind(); read() != null; advance()) {
 			toReturn.add(read());
 		}
 		return toReturn;
 	}
-	
-	/**
-	 * Returns the number of writes to this tape so far
-	 * @return The number of times this tape has been written to.
-	 */
-	public int getWrites() {
-		return writes;
-	}
-	
-	/**
-	 * Resets the number of writes to this tape to zero; should be done before
-	 * making measurements/testing the tapesort algorithm's efficiency.
-	 */
-	public void resetWrites() {
-		writes = 0;
-	}
-	
-	/**
-	 * The first node of the tape
-	 */
-	public Node<T> head;
-	
-	/**
-	 * The current node of the tape
-	 */
-	public Node<T> current;
-	
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package sorts.tapesort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts the objects stored on a FileTape to and from bytes, so that they can be kept in a file
+ * rather than on the heap. Each datum must be decoded from exactly the bytes that encoded it.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tape
+ */
+public interface TapeCodec<T> {
+
+	/**
+	 * Writes the datum's bytes to the output
+	 * @param datum The object to be encoded; never null
+	 * @param out Where the bytes are written
+	 * @throws IOException if out could not be written to
+	 */
+	public void encode(T datum, DataOutput out) throws IOException;
+
+	/**
+	 * Reads the bytes of one datum from the input and rebuilds the datum from them
+	 * @param in Where the bytes are read from
+	 * @return The decoded object
+	 * @throws IOException if in could not be read from
+	 */
+	public T decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,19 @@
+package sorts.tapesort;
+
+/**
+ * Makes the extra tapes a TapeSorter sorts with, so the sorts can be run on any kind of tape,
+ * whatever kind of tape the data to be sorted is on. The sort owns the tapes it is given: once it is over,
+ * it closes them (or erases them, if they are not Closeable), all but the one it returns, if any.
+ * @author Nathaniel Schleicher
+ *
+ * @param <T> The class of the objects to be stored on the tapes
+ */
+@FunctionalInterface
+public interface TapeFactory<T> {
+
+	/**
+	 * Makes a new empty tape, which must not be used by anything else
+	 * @return A new empty tape
+	 */
+	Tape<T> newTape();
+}
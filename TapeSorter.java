@@ -1,97 +1,209 @@
 package sorts.tapesort;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * The actual sorting algorithms for the various tapesorts are in this class,
  * namely the standard 3-tape tapesort (sort()), tapesort with variable tape number (multiSort()),
- * and a balanced tapesort (balancedSort())
+ * a balanced tapesort (balancedSort()), a polyphase tapesort (polyphaseSort()) and a cascade tapesort (cascadeSort())
+ * multiSort() and balancedSort() can also form their first runs in memory, by replacement selection or by
+ * sorting chunks of the data on every core at once (parallelMultiSort() and parallelBalancedSort()).
+ * pipelinedBalancedSort() is balancedSort() with the tapes read and written on threads of their own.
+ * readBackwardSort() is a balanced tapesort which reads its tapes backward, so they never need rewinding.
+ * sortAuto() chooses among the sorts for the caller, by the tapes and memory it may use and a sample of the data.
  * These tape sorts are essentially merge sorts for use on data tapes, which have sequential access.
- * The sorts use the compareTo() method to be compatible with various objects; compareTo() requires
- * that the Comparable interface be implemented by the objects stored on the tapes. The sorts sort in
- * ascending order, which is to say for any i1, i2 on the sorted tape, i1 coming before i2, 
- * i1.compareTo(i2) <= 0. 
- * The tapes used here are objects whose type is defined in the Tape class, which merely simulate
- * tapes. These tapes can only be advanced one way, unless they are rewound to the beginning, and
+ * By default the sorts use the compareTo() method to be compatible with various objects; compareTo() requires
+ * that the Comparable interface be implemented by the objects stored on the tapes, which is why a TapeSorter
+ * for them is made with natural(). The sorts sort in ascending order, which is to say for any i1, i2 on the
+ * sorted tape, i1 coming before i2, i1.compareTo(i2) <= 0. Each sort can also be given a Comparator to sort by
+ * instead (and a TapeSorter made with a Comparator uses it when given none), so objects need not be Comparable
+ * or wrapped in a Comparable class just to be sorted. For convenience, sort(), multiSort() and balancedSort()
+ * can also be given a function giving each object an int or long key to sort by.
+ * The tapes used here are any objects implementing the Tape interface, such as LinkedTape, which merely simulates
+ * a tape. The extra tapes each sort needs are made by the TapeFactory the TapeSorter was made with, or if it has
+ * none, with toSort.blank(), so they are of the same kind as toSort (e.g., a FileTape's extra tapes are also kept on disk).
+ * Once a sort is over, its extra tapes are closed, if they are Closeable (so a FileTape's files are deleted), or else
+ * erased; all but the tape it returns, if that is one of them, which the caller must close once done with it.
+ * One TapeSorter may run sorts on several threads at once, on different tapes, as long as its TapeFactory, if it
+ * has one, can be used by several threads at once; its counts of writes and comparisons take in all of them.
+ * These tapes can only be advanced one way, unless they are rewound to the beginning, and
  * they will only advance when advance() is called if what is stored in the current position is not null; the 
  * algorithms take advantage of this. An advance method could be written for actual tapes which also does this, but
  * if the read time on a tape is long, such a method could be sub-optimal, and these algorithms would
  * need to be somewhat rewritten for efficiency.
  * These algorithms were written to compare efficiency in number of comparisons and writes done using various
  * sorting algorithms on random data. A few parts of this class exist solely for tracking purposes; fortunately,
- * most of them are stuck in the write() method of the Tape class and the compareTo() method in the object
+ * most of them are stuck in the write() methods of the tapes and the compareTo() method in the object
  * I use to sort, the CompCounter.
  * @author Nathaniel Schleicher
  *
- * @param <T> The class of the objects stored on the tapes. Must implement Comparable for use of compareTo().
+ * @param <T> The class of the objects stored on the tapes. Must implement Comparable for the sorts not given a Comparator,
+ *            unless the TapeSorter was made with one.
  */
-public class TapeSorter<T extends Comparable<T>> {
+public class TapeSorter<T> {
 	
 	/**
 	 * This is the complete list of tapes used to sort the data. It only exists to help track the number
-	 * of writes done while sorting; it can be omitted if tracking is not required.
+	 * of writes done while sorting; it can be omitted if tracking is not required. It is a concurrent queue,
+	 * so sorts running on other threads can add their tapes to it while getTotalWrites() goes through it.
 	 */
-	private ArrayList<Tape<T>> fullTapeList = new ArrayList<Tape<T>>();
+	private final Queue<Tape<T>> fullTapeList = new ConcurrentLinkedQueue<Tape<T>>();
+	
+	/**
+	 * Makes the extra tapes the sorts use; if null, they are made with blank() on the tape being sorted
+	 */
+	private final TapeFactory<T> scratch;
+	
+	/**
+	 * The number of comparisons made by all of this TapeSorter's sorts, for tracking purposes like fullTapeList.
+	 * Each sort counts its own comparisons in a CountingComparator of its own, on its own thread, and adds them
+	 * here once it is done, so counting costs next to nothing while sorting, and sorts running at the same time
+	 * on other threads neither slow each other down nor lose counts.
+	 */
+	private final LongAdder comparisons = new LongAdder();
+	
+	/**
+	 * The order the sorts given no Comparator sort in; null if it is the objects' natural order, unchecked
+	 * (see defaultOrder())
+	 */
+	private final Comparator<? super T> order;
+	
+	/**
+	 * Makes a TapeSorter whose sorts make their extra tapes with blank() on the tape being sorted,
+	 * so they are of the same kind as it. The sorts given no Comparator sort by compareTo(), but
+	 * nothing checks that T is Comparable until a sort starts.
+	 * @deprecated Use natural(), so only Comparable objects can be sorted without a Comparator,
+	 * or TapeSorter(Comparator) for objects which are not Comparable
+	 */
+	@Deprecated
+	public TapeSorter() {
+		this((TapeFactory<T>) null);
+	}
+	
+	/**
+	 * Makes a TapeSorter whose sorts make their extra tapes with the given factory, so the data can be
+	 * sorted using a different kind of tape from the one it is on (e.g., sorting a FileTape with LinkedTapes in memory)
+	 * @param scratch Makes the extra tapes; if null, they are made with blank() on the tape being sorted
+	 * @deprecated Use natural(TapeFactory), so only Comparable objects can be sorted without a Comparator,
+	 * or TapeSorter(TapeFactory, Comparator) for objects which are not Comparable
+	 */
+	@Deprecated
+	public TapeSorter(TapeFactory<T> scratch) {
+		this(scratch, null);
+	}
+	
+	/**
+	 * Makes a TapeSorter whose sorts given no Comparator sort in the given order, and make their extra tapes
+	 * with blank() on the tape being sorted
+	 * @param order The order to sort in when no Comparator is given
+	 */
+	public TapeSorter(Comparator<? super T> order) {
+		this(null, order);
+	}
+	
+	/**
+	 * Makes a TapeSorter whose sorts given no Comparator sort in the given order, and make their extra tapes
+	 * with the given factory
+	 * @param scratch Makes the extra tapes; if null, they are made with blank() on the tape being sorted
+	 * @param order The order to sort in when no Comparator is given; if null, the objects' compareTo()
+	 */
+	public TapeSorter(TapeFactory<T> scratch, Comparator<? super T> order) {
+		this.scratch = scratch;
+		this.order = order;
+	}
+	
+	/**
+	 * Makes a TapeSorter for Comparable objects, whose sorts given no Comparator sort by compareTo(),
+	 * and make their extra tapes with blank() on the tape being sorted
+	 * @return A new TapeSorter
+	 */
+	public static <T extends Comparable<? super T>> TapeSorter<T> natural() {
+		return natural(null);
+	}
+	
+	/**
+	 * Makes a TapeSorter for Comparable objects, whose sorts given no Comparator sort by compareTo(),
+	 * and make their extra tapes with the given factory
+	 * @param scratch Makes the extra tapes; if null, they are made with blank() on the tape being sorted
+	 * @return A new TapeSorter
+	 */
+	public static <T extends Comparable<? super T>> TapeSorter<T> natural(TapeFactory<T> scratch) {
+		return new TapeSorter<T>(scratch, Comparator.<T>naturalOrder());
+	}
 	
 	/**
 	 * The standard 3-tape sort. It splits the data out form the input tape to two other tapes,
 	 * then merges back from those tapes to the first one, and repeats until the data is sorted.
+	 * Descending runs are written out reversed as they are split (see RunSplitter): up to
+	 * RunSplitter.DEFAULT_MAX_REVERSED items are reversed in memory, and a longer run is spilled onto a fourth
+	 * tape and read back from it backward, if the extra tapes can be read backward. If they cannot, a longer run
+	 * is reversed in pieces of that size, each a run of its own, so a reversed tape of n items takes about
+	 * log2(n / DEFAULT_MAX_REVERSED) passes rather than one (e.g. 6 passes, and 12 writes per item, for 200000).
 	 * @param toSort The tape containing the data to be sorted. It is altered during the method's running.
 	 * @return A tape with the data sorted on it. The returned tape is actually toSort, with the data on it sorted.
 	 */
 	public Tape<T> sort(Tape<T> toSort) {
+		return sort(toSort, defaultOrder(toSort));
+	}
+	
+	/**
+	 * sort(), with the data sorted by the given order instead of the objects' compareTo()
+	 * @param toSort The tape containing the data to be sorted. It is altered during the method's running.
+	 * @param comparator The order to sort the data in
+	 * @return A tape with the data sorted on it. The returned tape is actually toSort, with the data on it sorted.
+	 */
+	public Tape<T> sort(Tape<T> toSort, Comparator<? super T> comparator) {
+		CountingComparator<T> order = counting(comparator);
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = sortBy(toSort, extra, order);
+		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount());
+		}
+	}
+	
+	/*
+	 * The body of sort(), comparing the items by the given order
+	 */
+	private Tape<T> sortBy(Tape<T> toSort, List<Tape<T>> extra, Comparator<? super T> order) {
 		toSort.rewind(); //Rewind toSort in preparation for sorting, in case it is not rewound
 		fullTapeList.add(toSort); //This is only done for tracking purposes (ie, to track number of writes)
 		ArrayList<Tape<T>> tapes = new ArrayList<Tape<T>>();
-		tapes.add(new Tape<T>());
+		tapes.add(newTape(toSort, extra));
 		fullTapeList.add(tapes.get(0)); //This is only done for tracking purposes
-		tapes.add(new Tape<T>()); //tapes now has 2 tapes in it, which with toSort makes the 3 tapes necessary for the sort
+		tapes.add(newTape(toSort, extra)); //tapes now has 2 tapes in it, which with toSort makes the 3 tapes necessary for the sort
 		fullTapeList.add(tapes.get(1)); //This is only done for tracking purposes
-		//The tapes will be split and merged repeatedly until they are sorted, beginning here
-		//There is no defined end condition here because, due to optimizations in the algorithm, there is no definite
-		//number of iterations it will make. There is an upper limit, but the algorithm already checks if toSort
-		//is sorted during its normal execution, often resulting in far fewer steps in this loop.
-		//Having this upper limit in the loop conditions might speed up execution in the worst case, but tapes
-		//don't provide a definite length, which would be required to know the upper limit, and counting the length
-		//of the tape would potentially take almost as much time as what is currently done additionally in the worst case.
-		//This would not be true if advancing forward through a tape took a long time, in which case during an early
-		//read of toSort the length should be determined and used as an upper limit on loops for efficiency.
-		//Notably, though, in testing, the algorithm rarely makes the upper limit of loops, most frequently stopping
-		//one loop short, even when the tape is of a size where the maximum number of loops happening based on its size
-		//is most likely.
+		//The tapes will be split and merged repeatedly until they are sorted, beginning here.
+		//Each split counts the ascending divisions ("runs") it finds, and each merge pairs up a run from each tape,
+		//so it leaves at most half as many runs (rounded up) on toSort, and fewer if neighboring runs join up.
+		//The number of passes left is thus known from the first split on (it is at most log2 of the runs),
+		//and the sort stops as soon as the merge is known to have left a single run, without splitting again
+		//just to find out that toSort is sorted.
+		RunSplitter<T> splitter = splitter(toSort, extra, order);
 		for(;;){
-			int currentTape = 0;
-			tapes.get(currentTape).write(toSort.read()); //Prime the tape by writing the first element on it.
-			//The first element will be written on this tape regardless, and writing it now allows compareTo() to be
-			//called in the while loop below immediately.
-			
-			toSort.advance();
 			//Split toSort onto the two tapes once
 			//This is done by splitting the items in toSort into groups of ascending order;
 			//Whenever the an item in toSort descends from the previous one, it must start a new division
 			//This creates uniformly ascending divisions, as is required by mergesort, and minimizes
-			//how many of them there are, to optimize its speed.
-			while (toSort.read() != null) {//repeat until we've made it through all of toSort
-				//Condition 1: start a new division to be merged later.
-				//It does this when the next item does not come after the last one on the current tape.
-				if (toSort.read().compareTo(tapes.get(currentTape).read()) < 0) {
-					currentTape = (currentTape + 1) % 2;
-					tapes.get(currentTape).advance();
-					tapes.get(currentTape).write(toSort.read());
-				}
-				//Condition 2: continue writing to the current tape.
-				//It does this when the next item comes after the current one.
-				else {
-					tapes.get(currentTape).advance();
-					tapes.get(currentTape).write(toSort.read());
-				}
-				toSort.advance();
-			}
+			//how many of them there are, to optimize its speed. Descending groups are written reversed,
+			//so they make ascending divisions too (see RunSplitter).
+			int runs = splitter.split(toSort, tapes);
 			for (Tape<T> tape: tapes) {//Rewind all tapes in preparation for the next step
 				tape.rewind();
 			}
-			//End case: the entirety of toSort was written to tape0 (tape1 is empty), meaning toSort
-			//was entirely ordered. We rewind toSort and return it.
-			if (tapes.get(1).read() == null) {
+			//End case: the entirety of toSort was written to tape0 as one run (tape1 is empty) as it was, meaning
+			//toSort was entirely ordered. We rewind toSort and return it. (If the run was reversed, tape0 has the
+			//sorted data, and the merge below, having nothing to merge it with, copies it back to toSort.)
+			if (runs <= 1 && !splitter.reversed()) {
 				toSort.rewind();
 				return toSort;
 			}
@@ -100,7 +212,7 @@ public class TapeSorter<T extends Comparable<T>> {
 			while(tapes.get(0).read() != null && tapes.get(1).read() != null) {
 				//Write first item onto toSort; it is the least of the first items on the other tapes.
 				if (toSort.read() == null)
-					if (tapes.get(0).read().compareTo(tapes.get(1).read()) < 0) {
+					if (order.compare(tapes.get(0).read(), tapes.get(1).read()) < 0) {
 						toSort.write(tapes.get(0).read());
 						tapes.get(0).advance();
 					}
@@ -112,8 +224,8 @@ public class TapeSorter<T extends Comparable<T>> {
 				//empty items from tape1 until its next item is less than the last item on toSort
 				//(End the current division on tape1). 
 				//This is like having emptied one sub-array in a normal merge sort.
-				else if (tapes.get(0).read().compareTo(toSort.read()) < 0) {
-					while(tapes.get(1).read() != null && tapes.get(1).read().compareTo(toSort.read()) >= 0) {
+				else if (order.compare(tapes.get(0).read(), toSort.read()) < 0) {
+					while(tapes.get(1).read() != null && order.compare(tapes.get(1).read(), toSort.read()) >= 0) {
 						toSort.advance();
 						toSort.write(tapes.get(1).read());
 						tapes.get(1).advance();
@@ -121,8 +233,8 @@ public class TapeSorter<T extends Comparable<T>> {
 					toSort.advance();
 				}
 				//Same as above, but with the tapes' roles switched
-				else if (tapes.get(1).read().compareTo(toSort.read()) < 0) {
-					while(tapes.get(0).read() != null && tapes.get(0).read().compareTo(toSort.read()) >= 0) {
+				else if (order.compare(tapes.get(1).read(), toSort.read()) < 0) {
+					while(tapes.get(0).read() != null && order.compare(tapes.get(0).read(), toSort.read()) >= 0) {
 						toSort.advance();
 						toSort.write(tapes.get(0).read());
 						tapes.get(0).advance();
@@ -131,7 +243,7 @@ public class TapeSorter<T extends Comparable<T>> {
 				}
 				//If both tapes are within their "current" divisions, write the next item down, the least of
 				//the two tapes' current items. This is the basic merge step.
-				else if (tapes.get(0).read().compareTo(tapes.get(1).read()) < 0) {//tape0's item is less
+				else if (order.compare(tapes.get(0).read(), tapes.get(1).read()) < 0) {//tape0's item is less
 					toSort.advance();
 					toSort.write(tapes.get(0).read());
 					tapes.get(0).advance();
@@ -144,13 +256,12 @@ public class TapeSorter<T extends Comparable<T>> {
 			}
 			//Once one tape is completely empty, empty the rest of the other tape onto toSort to finish this merge step
 			for(Tape<T> tape : tapes) {
-				for(; tape.read() != null; tape.advance()) {
-					toSort.advance();
-					toSort.write(tape.read());
-				}
+				tape.transferTo(toSort, Long.MAX_VALUE); //No comparisons are needed, so the tape can move it all at once
 				tape.erase();
 			}
 			toSort.rewind();
+			if (runs <= 2) //The merge left a single run; toSort is sorted, so there is no need to split it again
+				return toSort;
 		}
 	}
 	
@@ -164,108 +275,163 @@ public class TapeSorter<T extends Comparable<T>> {
 	 * @return a tape with the data sorted on it; is actually the input tape, toSort
 	 */
 	public Tape<T> multiSort(Tape<T> toSort, int numTapes) throws Exception {
+		return multiSort(toSort, numTapes, 0);
+	}
+	
+	/**
+	 * multiSort(), but with the first split done by replacement selection (see ReplacementSelection) with a heap
+	 * of heapSize items, rather than by the ascending runs already in toSort. The runs it forms average twice
+	 * heapSize in length on random data, so far fewer passes are needed. After the first merge, the sort
+	 * carries on exactly as multiSort() does.
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @param heapSize the number of items to hold in memory while forming runs; if 0, the first split is a normal one
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> multiSort(Tape<T> toSort, int numTapes, int heapSize) throws Exception {
+		return multiSort(toSort, numTapes, heapSize, defaultOrder(toSort));
+	}
+	
+	/**
+	 * multiSort(), with the data sorted by the given order instead of the objects' compareTo()
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @param comparator the order to sort the data in
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> multiSort(Tape<T> toSort, int numTapes, Comparator<? super T> comparator) throws Exception {
+		return multiSort(toSort, numTapes, 0, comparator);
+	}
+	
+	/**
+	 * multiSort() with its first split done by replacement selection, with the data sorted by the given order
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @param heapSize the number of items to hold in memory while forming runs; if 0, the first split is a normal one
+	 * @param comparator the order to sort the data in
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> multiSort(Tape<T> toSort, int numTapes, int heapSize, Comparator<? super T> comparator) throws Exception {
+		CountingComparator<T> order = counting(comparator);
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = multiSortBy(toSort, extra, numTapes, heapSize > 0 ? new ReplacementSelection<T>(heapSize, order) : null, order);
+		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount());
+		}
+	}
+	
+	/*
+	 * The body of multiSort(), comparing the items by the given order
+	 */
+	private Tape<T> multiSortBy(Tape<T> toSort, List<Tape<T>> extra, int numTapes, RunFormer<T> former, Comparator<? super T> order) throws Exception {
 		if (numTapes < 2) //Need at least 3 tapes total to sort
 			throw new Exception("Not enough tapes");
 		toSort.rewind(); //Rewind toSort in preparation
 		fullTapeList.add(toSort); //Tracking purposes
 		ArrayList<Tape<T>> tapes = new ArrayList<Tape<T>>(); //List of other tapes used
 		for (int i = 0; i < numTapes; i++) { //Filling tapes
-			tapes.add(new Tape<T>());
+			tapes.add(newTape(toSort, extra));
 			fullTapeList.add(tapes.get(i)); //Tracking purposes only
 		}
-		for(;;) {//Continue until sorted; will break then. See explanation in "sort" above
-			int currentTape = 0;
-			tapes.get(currentTape).write(toSort.read()); //Put first item on first tape in preparation for while loop
-			toSort.advance();
-			//Below starts the "split" step
-			while (toSort.read() != null) { //Continue splitting until we've made it completely through toSort
-				//Condition one: if the next item does not follow from the one currently on the tape, switch to the
-				//next tape
-				if (toSort.read().compareTo(tapes.get(currentTape).read()) < 0) {
-					currentTape = (currentTape + 1) % numTapes;
-				}
-				//Now write to whichever is the current tape
-				tapes.get(currentTape).advance(); //Takes advantage of the quirks of the advance() method
-				tapes.get(currentTape).write(toSort.read());
-
-				toSort.advance();//Advance toSort to the next item to be written
-			}
+		LoserTree<T> tree = new LoserTree<T>(numTapes, order); //Finds the tape with the next item to merge
+		RunSplitter<T> splitter = splitter(toSort, extra, order); //Splits toSort into runs, reversing descending ones
+		//If runs are formed by a RunFormer, they replace the first split. 0 means the split is a normal one.
+		int formedRuns = former != null ? former.distribute(toSort, tapes) : 0;
+		for(;;) {//Continue until sorted; will return then. See explanation in "sort" above
+			//Below starts the "split" step, which counts the runs it makes
+			int runs = formedRuns > 0 ? formedRuns : splitter.split(toSort, tapes);
 			for (Tape<T> tape: tapes) {//Rewind split tapes to prepare for merging
 				tape.rewind();
 			}
-			//End Case: toSort was sorted, so it was all written to tape 0, so tape 1 (and all tapes after it)
-			//is empty.
-			if (tapes.get(1).read() == null) {
+			//End Case: toSort was sorted, so it was all written to tape 0 as a single run, and tape 1 (and all tapes
+			//after it) is empty. (After forming runs, or reversing a descending one, a single run must still be
+			//merged back to toSort, below.)
+			if (formedRuns == 0 && runs <= 1 && !splitter.reversed()) {
 				toSort.rewind(); //Rewind before returning
 				return toSort;   //Return sorted tape
 			}
 			toSort.erase(); //Erase toSort in preparation for merging to it.
 			
-			//This array tells which tapes still have items on them to be merged.
-			//A tape is no longer active once either a "section" has ended (its next value is less than the
-			//previous one) or its next item is null.
-			int[] activeTapes = new int[tapes.size()];
-			int nullCount = 0; //The number of empty tapes
-			for (int i = 0; i < activeTapes.length; i++) //give activeTapes and nullCount their start values
-				if (tapes.get(i).read() == null) {//It is an empty tape, so it is not active
-					nullCount++;
-					activeTapes[i] = 0;
-				}
-				else //The tape is not empty, so it is active
-					activeTapes[i] = 1;
-			//Merge step; repeat until tapes have been merged back to toSort
-			for(;;) {
-				//minTape is the position of the minimum tape in tapes that has the smallest item that is larger
-				//than the last item on toSort (i.e. the tape that has the next value to be merged)
-				int minTape = 0;
-				int i = 0;
-				for (; i < tapes.size(); i++)//Find the first active tape
-					if (activeTapes[i] == 1)
-						break;
-				minTape = i; //minTape is now the position of the first active tape
-				
-				if (minTape == tapes.size()) { //There is no active tape
-					//Make all non-empty tapes active to prepare for next step of merging
-					for (i = 0; i < tapes.size(); i++) {
-						if (tapes.get(i).read() != null) {
-							activeTapes[i] = 1;
-						}
-					}
+			//Merge step; repeat until tapes have been merged back to toSort.
+			//Each merge section takes one ascending run from every non-empty tape. A tape is "active" until its run
+			//ends (its next value is less than the previous one) or it is empty; the loser tree gives the active tape
+			//with the least item (i.e. the tape that has the next value to be merged) in about log2(numTapes) comparisons.
+			//When no tape is active, the section is over, and every non-empty tape is made active for the next one.
+			//Once only one tape has data left, the rest of the merge step would just copy it to toSort, section by section.
+			int remaining = tree.activate(tapes); //The number of tapes not yet empty
+			while (remaining > 1) {
+				int minTape = tree.winner();
+				if (minTape < 0) { //The section is over; start the next one
+					remaining = tree.activate(tapes);
 					continue;
 				}
-				
-				//Find the actual minTape
-				for (; i < activeTapes.length; i++)
-					//Conditions: the tape must be active, and the item on the tape must be less than the one
-					//on the current minTape
-					if (activeTapes[i] == 1 && tapes.get(i).read().compareTo(tapes.get(minTape).read()) < 0) {
-						minTape = i;
-					}
 				//Write the next item to toSort; advance the tape that just wrote
 				toSort.advance();
 				toSort.write(tapes.get(minTape).read());
 				tapes.get(minTape).advance();
-				
-				//Check to see if we must update the status of the tape that just wrote
-				if (tapes.get(minTape).read() == null) {//The tape is empty
-					nullCount++; //We have one more empty tape
-					activeTapes[minTape] = 0; //It is no longer active
-					if (nullCount == activeTapes.length) //End case for the merge step: all tapes are empty
-						break;
-				}
-				
-				//The next item on the tape is less than the one just written; then we have entered a new
-				//merge section, which must wait until the next merge.
-				else if (tapes.get(minTape).read().compareTo(toSort.read()) < 0) {
-					activeTapes[minTape] = 0; //The tape is no longer active until we move to the next merge sections
-				}
+				if (tapes.get(minTape).read() == null)
+					remaining--;
+				//The tape stays active unless it is empty, or its next item is less than the one just written,
+				//meaning it has entered a new merge section, which must wait until the next merge.
+				tree.replay(tapes.get(minTape).read() != null && order.compare(tapes.get(minTape).read(), toSort.read()) >= 0);
 			}
+			for (Tape<T> tape : tapes) //Copy the rest of the last tape with data, if any, all at once
+				tape.transferTo(toSort, Long.MAX_VALUE);
 			
 			//Prepare for next splitting step
 			for(Tape<T> tape : tapes) {
 				tape.erase();
 			}
 			toSort.rewind();
+			//Each merge section takes one run from each tape, so the merge leaves at most runs / numTapes (rounded up)
+			//runs on toSort. If that is one, toSort is sorted, and there is no need to split it again to find out.
+			if (runs <= numTapes)
+				return toSort;
+			formedRuns = 0; //From here on, split normally
+		}
+	}
+	
+	/**
+	 * multiSort(), but with the first split done by a ParallelRunFormer: toSort is read in chunks of chunkSize
+	 * items, which are sorted in memory on the common ForkJoinPool, as many at once as there are cores, and
+	 * written to the tapes as runs. After the first merge, the sort carries on exactly as multiSort() does.
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @param chunkSize the number of items each thread sorts in memory at once; must be at least 1
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> parallelMultiSort(Tape<T> toSort, int numTapes, int chunkSize) throws Exception {
+		return parallelMultiSort(toSort, numTapes, chunkSize, defaultOrder(toSort));
+	}
+	
+	/**
+	 * parallelMultiSort(), with the data sorted by the given order
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @param chunkSize the number of items each thread sorts in memory at once; must be at least 1
+	 * @param comparator the order to sort the data in; it is used by several threads at once
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> parallelMultiSort(Tape<T> toSort, int numTapes, int chunkSize, Comparator<? super T> comparator) throws Exception {
+		CountingComparator<T> order = counting(comparator);
+		ParallelRunFormer<T> former = new ParallelRunFormer<T>(chunkSize, comparator); //Counts its own comparisons
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = multiSortBy(toSort, extra, numTapes, former, order);
+		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount() + former.getComparisons());
 		}
 	}
 	
@@ -275,21 +441,149 @@ public class TapeSorter<T extends Comparable<T>> {
 	 * repeatedly to split back out to the other tapes. The two sets of tapes are of the same size.
 	 * @param toSort The tape containing the data to be sorted; is modified
 	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
-	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
 	 */
 	public Tape<T> balancedSort(Tape<T> toSort, int numTapes) {
-		toSort.rewind(); //Prepare for sorting
-		if (numTapes < 2) { //Need at least 2 sets of 2 tapes for a balanced tape sort
-			System.err.println("Too few tapes");
-			return toSort;
+		return balancedSort(toSort, numTapes, 0);
+	}
+	
+	/**
+	 * balancedSort(), but with the first split done by replacement selection (see ReplacementSelection) with a heap
+	 * of heapSize items, rather than by the ascending runs already in toSort. The runs formed are written straight to
+	 * the "to" tapes, and average twice heapSize in length on random data, so far fewer passes are needed.
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param heapSize The number of items to hold in memory while forming runs; if 0, the first split is a normal one
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> balancedSort(Tape<T> toSort, int numTapes, int heapSize) {
+		return balancedSort(toSort, numTapes, heapSize, defaultOrder(toSort));
+	}
+	
+	/**
+	 * balancedSort(), with the data sorted by the given order instead of the objects' compareTo()
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param comparator The order to sort the data in
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> balancedSort(Tape<T> toSort, int numTapes, Comparator<? super T> comparator) {
+		return balancedSort(toSort, numTapes, 0, comparator);
+	}
+	
+	/**
+	 * balancedSort() with its first split done by replacement selection, with the data sorted by the given order
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param heapSize The number of items to hold in memory while forming runs; if 0, the first split is a normal one
+	 * @param comparator The order to sort the data in
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> balancedSort(Tape<T> toSort, int numTapes, int heapSize, Comparator<? super T> comparator) {
+		CountingComparator<T> order = counting(comparator);
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = balancedSortBy(toSort, extra, numTapes, heapSize > 0 ? new ReplacementSelection<T>(heapSize, order) : null, null, order);
+		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount());
+		}
+	}
+	
+	/**
+	 * balancedSort(), but with the first split done by a ParallelRunFormer, like parallelMultiSort(): the runs,
+	 * chunkSize items long, are sorted in memory on the common ForkJoinPool and written straight to the "to" tapes.
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param chunkSize The number of items each thread sorts in memory at once; must be at least 1
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> parallelBalancedSort(Tape<T> toSort, int numTapes, int chunkSize) {
+		return parallelBalancedSort(toSort, numTapes, chunkSize, defaultOrder(toSort));
+	}
+	
+	/**
+	 * parallelBalancedSort(), with the data sorted by the given order
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param chunkSize The number of items each thread sorts in memory at once; must be at least 1
+	 * @param comparator The order to sort the data in; it is used by several threads at once
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> parallelBalancedSort(Tape<T> toSort, int numTapes, int chunkSize, Comparator<? super T> comparator) {
+		CountingComparator<T> order = counting(comparator);
+		ParallelRunFormer<T> former = new ParallelRunFormer<T>(chunkSize, comparator); //Counts its own comparisons
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = balancedSortBy(toSort, extra, numTapes, former, null, order);
 		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount() + former.getComparisons());
+		}
+	}
+	
+	/**
+	 * balancedSort(), with each merge/split pass pipelined over several threads (see PipelinedMerge): every "from"
+	 * tape is read ahead on a thread of its own, and the "to" tapes are written on another, while the merge runs
+	 * on the calling thread. Reading, merging and writing then overlap, so a slow tape does not stall the whole
+	 * merge. The tapes do not need to be thread-safe, as each is only used by one thread at a time.
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> pipelinedBalancedSort(Tape<T> toSort, int numTapes) {
+		return pipelinedBalancedSort(toSort, numTapes, defaultOrder(toSort));
+	}
+	
+	/**
+	 * pipelinedBalancedSort(), with the data sorted by the given order
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param comparator The order to sort the data in
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> pipelinedBalancedSort(Tape<T> toSort, int numTapes, Comparator<? super T> comparator) {
+		CountingComparator<T> order = counting(comparator);
+		PipelinedMerge<T> pipeline = new PipelinedMerge<T>(numTapes, order); //All comparisons are on this thread
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = balancedSortBy(toSort, extra, numTapes, null, pipeline, order);
+		}
+		finally {
+			release(extra, sorted);
+			pipeline.close();
+			comparisons.add(order.getCount());
+		}
+	}
+	
+	/*
+	 * The body of balancedSort(), comparing the items by the given order; each pass is merged by the pipeline,
+	 * if there is one, or else on this thread
+	 */
+	private Tape<T> balancedSortBy(Tape<T> toSort, List<Tape<T>> extra, int numTapes, RunFormer<T> former, PipelinedMerge<T> pipeline, Comparator<? super T> order) {
+		toSort.rewind(); //Prepare for sorting
+		if (numTapes < 2) //Need at least 2 sets of 2 tapes for a balanced tape sort
+			throw new IllegalArgumentException("Not enough tapes");
 		ArrayList<Tape<T>> from = new ArrayList<Tape<T>>(); //list of tapes to write "from"
 		from.add(toSort); //toSort is the first tape in the from tapes, since it must be written from at the start
 		for (int i = 1; i < numTapes; i++) //Fill the rest of from. It has numTapes tapes.
-			from.add(new Tape<T>());
+			from.add(newTape(toSort, extra));
 		ArrayList<Tape<T>> to = new ArrayList<Tape<T>>(); //list of tapes to write "to"
 		for (int i = 0; i < numTapes; i++) //fill "to" with empty tapes; to has numTapes tapes.
-			to.add(new Tape<T>());
+			to.add(newTape(toSort, extra));
 		//At this point, there are 2 * numTapes tapes, half in from, and half in to. One of them is toSort.
 		//from's tapes are mostly empty, except for toSort, which must start by being split from to "to".
 		//to's tapes are all empty and ready to be split to.
@@ -303,87 +597,626 @@ public class TapeSorter<T extends Comparable<T>> {
 		//Which tape we are writing to. Any time we enter a new merge segment, this will be changed to the next to tape.
 		int activeToTape = 0;
 		
-		//Much like in multiSort, we must keep track of which tapes are being sorted from.
-		int activeFromTapes[] = new int[numTapes];
+		//Much like in multiSort, we must keep track of which tapes are being sorted from; the loser tree does this,
+		//and finds the active from tape with the least item.
+		LoserTree<T> tree = new LoserTree<T>(numTapes, order);
 		
-		//This is our empty tape count again. Since this is the first step, we know that only toSort is not empty,
-		//so the rest of the from tapes count for the nullCount.
-		int nullCount = numTapes - 1;
-		activeFromTapes[0] = 1; //toSort is not empty
-		for (int i = 1; i < numTapes; i++) //All the other from tapes are empty.
-			activeFromTapes[i] = 0;
+		if (former != null) { //Form the first runs with the RunFormer, straight onto the "to" tapes
+			int formedRuns = former.distribute(toSort, to);
+			if (formedRuns <= 1) { //toSort was empty, or fit in a single run, which is on "to" tape 0
+				to.get(0).rewind();
+				return formedRuns == 0 ? toSort : to.get(0);
+			}
+			//Carry on as though a merge/split step had just finished: swap the from and to tapes, as below
+			ArrayList<Tape<T>> temp = from;
+			from = to;
+			to = temp;
+			for (Tape<T> tape : from)
+				tape.rewind();
+			for (Tape<T> tape : to) //toSort is among these; all its data is on the from tapes now
+				tape.erase();
+		}
 		
 		//Continue to merge/split until the data is sorted.
 		for (;;) {
-			int i = 0; //Declared here so iteration can be resumed partially through
-			int minTape = 0;
-			for (; i < numTapes; i++) { //Find the first active from tape
-				if (activeFromTapes[i] == 1)
-					break;
-			}
-			minTape = i; //First valid tape stored here before we find the actual min
-			if (minTape == numTapes) { //There are no more active from tapes; we must move to the next set of merges
+			//The number of merge sections, i.e. runs written to the "to" tapes, in this pass
+			int sections = 0;
+			if (pipeline != null) //The pipeline's threads do the whole merge/split below, sections and all
+				sections = pipeline.merge(from, to);
+			//Merge from the from tapes one section at a time, until they are all empty
+			while (pipeline == null && tree.activate(from) > 0) {
+				for (int minTape = tree.winner(); minTape >= 0; minTape = tree.winner()) {
+					//Write the min value to the active "to" tape
+					to.get(activeToTape).advance();
+					to.get(activeToTape).write(from.get(minTape).read());
+					from.get(minTape).advance();
+					//The from tape stays active unless it is empty, or its next value does not follow from the one
+					//just written (it has entered a new merge section)
+					tree.replay(from.get(minTape).read() != null && order.compare(from.get(minTape).read(), to.get(activeToTape).read()) >= 0);
+				}
+				//There are no more active from tapes; we must move to the next set of merges
 				//The tape we are writing to changes. This is the key part of the balanced tapeSort, as it allows us
 				//to simultaneously split and merge; whenever we start a new section of merges, we simply change which
 				//tape we are merging to. In the end, all "to" tapes will have series of ascending data.
 				activeToTape = (activeToTape + 1) % numTapes; //Select the next "to" tape
-				for (int j = 0; j < numTapes; j++) { //Check which tapes are not empty; make them active
-					if (from.get(j).read() != null)
-						activeFromTapes[j] = 1;
+				sections++;
+			}
+			//All "from" tapes have been emptied, so we must move to the next step
+			
+			//End case: all values have been merged to one tape in a single section (and are thus completely sorted),
+			//which means that tape 1 is empty.
+			if (sections <= 1)
+				break;
+			
+			//Swap the from and to tapes. This is another key to the balanced tape sort.
+			//Now the tapes with all the data on them must merge/split to the tapes without data.
+			ArrayList<Tape<T>> temp = from;
+			from = to;
+			to = temp;
+			for (Tape<T> tape : from) //Rewind all our new from tapes in preparation for the next merge/splits
+				tape.rewind();
+			for (Tape<T> tape : to) //Erase all the new "to" tapes in preparation for merging to them
+				tape.erase();
+			//The first tape to be written to is "to" tape 0. This is partially because of how the algorithm
+			//detects that the data is sorted
+			activeToTape = 0;
+		}
+		//The "end case" break just happened, so these are the last steps.
+		to.get(0).rewind(); //Rewind "to" tape zero in preparation of returning it
+		return to.get(0); //Return the sorted tape
+	}
+	
+	/**
+	 * A polyphase merge sort. Unlike multiSort(), which splits all of toSort out to the other tapes and merges
+	 * it all back every pass, the polyphase sort splits the data only once, onto all tapes but one, in numbers
+	 * of runs following a generalized Fibonacci distribution. Each phase then merges from every tape but one
+	 * onto that one, until one of the tapes being merged from runs out; that tape becomes the tape merged to in
+	 * the next phase. Thanks to the distribution, exactly one tape runs out per phase, and only part of the data
+	 * is copied in each phase, which saves a great many writes over multiSort() and balancedSort().
+	 * When the number of runs in toSort is not a number the distribution allows, the missing runs are made up
+	 * with "dummy" runs, which are only counted and never written; they are considered to be at the start of
+	 * their tapes, so they are merged first. Runs which happen to join up with the run before them on a tape
+	 * (because the first item of the second is not less than the last of the first) are simply merged together
+	 * with it, and their place in the count is treated like a dummy run.
+	 * The number of tapes actually used is numTapes + 1, the additional tape being toSort.
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of additional tapes to be used to sort the data; must be at least 2
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data
+	 * @return A tape containing the sorted data; like balancedSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> polyphaseSort(Tape<T> toSort, int numTapes) throws Exception {
+		return polyphaseSort(toSort, numTapes, defaultOrder(toSort));
+	}
+	
+	/**
+	 * polyphaseSort(), with the data sorted by the given order instead of the objects' compareTo()
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of additional tapes to be used to sort the data; must be at least 2
+	 * @param comparator The order to sort the data in
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data
+	 * @return A tape containing the sorted data; like balancedSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> polyphaseSort(Tape<T> toSort, int numTapes, Comparator<? super T> comparator) throws Exception {
+		CountingComparator<T> order = counting(comparator);
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = polyphaseSortBy(toSort, extra, numTapes, order);
+		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount());
+		}
+	}
+	
+	/*
+	 * The body of polyphaseSort(), comparing the items by the given order
+	 */
+	private Tape<T> polyphaseSortBy(Tape<T> toSort, List<Tape<T>> extra, int numTapes, Comparator<? super T> order) throws Exception {
+		if (numTapes < 2) //Need at least 3 tapes total to sort
+			throw new Exception("Not enough tapes");
+		toSort.rewind(); //Rewind toSort in preparation
+		fullTapeList.add(toSort); //Tracking purposes
+		ArrayList<Tape<T>> tapes = new ArrayList<Tape<T>>();
+		for (int i = 0; i < numTapes; i++) {
+			tapes.add(newTape(toSort, extra));
+			fullTapeList.add(tapes.get(i)); //Tracking purposes only
+		}
+		tapes.add(toSort); //Once it has been split, toSort is the first tape merged to
+		
+		//runs holds how many runs each tape has, including dummy runs; dummies holds how many of those are dummies.
+		//The distribution is built up one level at a time: the first level is one run per tape, and each level
+		//is the one before with every tape getting as many more runs as the first tape and the next tape had.
+		//Runs are written so as to use up the dummies of each level evenly (Knuth's Algorithm D).
+		int[] runs = new int[numTapes + 1];
+		int[] dummies = new int[numTapes + 1];
+		for (int i = 0; i < numTapes; i++) {
+			runs[i] = 1;
+			dummies[i] = 1;
+		}
+		//Split step: write the runs of toSort out to the first numTapes tapes
+		int realRuns = distribute(toSort, tapes, runs, dummies, false, order); //The number of runs actually written
+		//End case: toSort was empty or already sorted; there is nothing to merge
+		if (realRuns <= 1) {
+			tapes.get(0).rewind();
+			return realRuns == 0 ? toSort : tapes.get(0);
+		}
+		for (Tape<T> tape : tapes) //Rewind split tapes to prepare for merging
+			tape.rewind();
+		toSort.erase(); //Erase toSort in preparation for merging to it.
+		
+		int outTape = numTapes; //The tape being merged to in this phase
+		ArrayList<Tape<T>> sources = new ArrayList<Tape<T>>(); //The tapes with a real run in the current merge
+		LoserTree<T> tree = new LoserTree<T>(numTapes, order);
+		for (;;) {
+			//The phase lasts as long as every tape merged from has a run left
+			int merges = Integer.MAX_VALUE;
+			for (int i = 0; i < tapes.size(); i++)
+				if (i != outTape)
+					merges = Math.min(merges, runs[i]);
+			for (int m = 0; m < merges; m++) {
+				sources.clear();
+				for (int i = 0; i < tapes.size(); i++) {
+					if (i == outTape)
+						continue;
+					runs[i]--;
+					if (dummies[i] > 0) //This tape's run is a dummy, so it has nothing to add
+						dummies[i]--;
+					else
+						sources.add(tapes.get(i));
 				}
-				continue;
+				runs[outTape]++;
+				if (sources.isEmpty()) //Merging only dummies makes another dummy
+					dummies[outTape]++;
+				else
+					mergeRun(sources, tapes.get(outTape), tree, order);
 			}
-			for (; i < numTapes; i++) { //Find the actual minTape
-				if (activeFromTapes[i] == 1 && from.get(i).read().compareTo(from.get(minTape).read()) < 1) 
-					minTape = i;
+			//End case: everything has been merged into one run
+			int totalRuns = 0;
+			for (int i = 0; i < tapes.size(); i++)
+				totalRuns += runs[i];
+			if (totalRuns == 1)
+				break;
+			//The tape that ran out becomes the next tape merged to; the one just merged to is read from next
+			tapes.get(outTape).rewind();
+			for (int i = 0; i < tapes.size(); i++)
+				if (runs[i] == 0) {
+					outTape = i;
+					break;
+				}
+			tapes.get(outTape).erase();
+		}
+		tapes.get(outTape).rewind();
+		return tapes.get(outTape);
+	}
+	
+	/**
+	 * A cascade merge sort. Like polyphaseSort(), it splits the data only once, onto all tapes but one, but in
+	 * numbers of runs following the cascade distribution, in which the tape with the most runs has as many as all
+	 * the tapes had at the level below, the next as many as all but the last had, and so on. Each phase is then a
+	 * cascade of merges of decreasing fan-in: the tapes are merged from, onto the empty tape, until the one with the
+	 * fewest runs runs out; then the rest are merged onto that one, until the next runs out; and so on down to a
+	 * two-way merge. The runs left on the tape that had the most are left where they are, to be read from there in
+	 * the next phase, rather than copied to the last tape to run out. Each phase thus leaves the tapes one level
+	 * lower in the distribution. With more tapes, fewer phases are needed than by polyphaseSort(), and each item
+	 * is copied fewer times in all. As in polyphaseSort(), missing runs are made up with dummy runs.
+	 * The number of tapes actually used is numTapes + 1, the additional tape being toSort.
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of additional tapes to be used to sort the data; must be at least 2
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data
+	 * @return A tape containing the sorted data; like polyphaseSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> cascadeSort(Tape<T> toSort, int numTapes) throws Exception {
+		return cascadeSort(toSort, numTapes, defaultOrder(toSort));
+	}
+	
+	/**
+	 * cascadeSort(), with the data sorted by the given order instead of the objects' compareTo()
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of additional tapes to be used to sort the data; must be at least 2
+	 * @param comparator The order to sort the data in
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data
+	 * @return A tape containing the sorted data; like polyphaseSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> cascadeSort(Tape<T> toSort, int numTapes, Comparator<? super T> comparator) throws Exception {
+		CountingComparator<T> order = counting(comparator);
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = cascadeSortBy(toSort, extra, numTapes, order);
+		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount());
+		}
+	}
+	
+	/*
+	 * The body of cascadeSort(), comparing the items by the given order
+	 */
+	private Tape<T> cascadeSortBy(Tape<T> toSort, List<Tape<T>> extra, int numTapes, Comparator<? super T> order) throws Exception {
+		if (numTapes < 2) //Need at least 3 tapes total to sort
+			throw new Exception("Not enough tapes");
+		toSort.rewind(); //Rewind toSort in preparation
+		fullTapeList.add(toSort); //Tracking purposes
+		ArrayList<Tape<T>> tapes = new ArrayList<Tape<T>>();
+		for (int i = 0; i < numTapes; i++) {
+			tapes.add(newTape(toSort, extra));
+			fullTapeList.add(tapes.get(i)); //Tracking purposes only
+		}
+		tapes.add(toSort); //Once it has been split, toSort is the first tape merged to
+		
+		//runs holds how many runs each tape has, including dummy runs; dummies holds how many of those are dummies.
+		//As in polyphaseSort(), the first level of the distribution is one run per tape.
+		int[] runs = new int[numTapes + 1];
+		int[] dummies = new int[numTapes + 1];
+		for (int i = 0; i < numTapes; i++) {
+			runs[i] = 1;
+			dummies[i] = 1;
+		}
+		//Split step: write the runs of toSort out to the first numTapes tapes
+		int realRuns = distribute(toSort, tapes, runs, dummies, true, order);
+		//End case: toSort was empty or already sorted; there is nothing to merge
+		if (realRuns <= 1) {
+			tapes.get(0).rewind();
+			return realRuns == 0 ? toSort : tapes.get(0);
+		}
+		for (Tape<T> tape : tapes) //Rewind split tapes to prepare for merging
+			tape.rewind();
+		toSort.erase(); //Erase toSort in preparation for merging to it.
+		
+		int outTape = numTapes; //The tape being merged to
+		ArrayList<Integer> feeding = new ArrayList<Integer>(); //The tapes being merged from, the one with the most runs first
+		ArrayList<Tape<T>> sources = new ArrayList<Tape<T>>(); //The tapes with a real run in the current merge
+		LoserTree<T> tree = new LoserTree<T>(numTapes, order);
+		for (;;) {
+			feeding.clear();
+			int totalRuns = 0;
+			for (int i = 0; i < tapes.size(); i++) {
+				totalRuns += runs[i];
+				if (runs[i] > 0)
+					feeding.add(i);
 			}
-			//Write the min value to the active "to" tape
-			to.get(activeToTape).advance();
-			to.get(activeToTape).write(from.get(minTape).read());
-			from.get(minTape).advance();
-			//Check to see if the status of the "from" tape that was just written from must change.
-			if (from.get(minTape).read() == null) { //The from tape is empty
-				activeFromTapes[minTape] = 0; //It is no longer active
-				nullCount++; //There is one more empty tape
-				if (nullCount == numTapes) {//All "from" tapes have been emptied, so we must move to the next step
-					
-					//End case: all values have been merged to one tape (and are thus completely sorted),
-					//which means that a rewound tape 1 will be empty.
-					to.get(1).rewind();
-					if (to.get(1).read() == null)
-						break;
-					
-					//Swap the from and to tapes. This is another key to the balanced tape sort.
-					//Now the tapes with all the data on them must merge/split to the tapes without data.
-					ArrayList<Tape<T>> temp = from;
-					from = to;
-					to = temp;
-					
-					nullCount = 0; //Reset the null count
-					for (int j = 0; j < numTapes; j++) {
-						from.get(j).rewind(); //Rewind all our new from tapes in preparation for the next merge/splits
-						if (from.get(j).read() == null) { //If nearly done sorting, some of the from tapes might be empty
-							nullCount++; //nullCount must reflect the existence of an empty from tape
-							activeFromTapes[j] = 0; //that tape is not active
-						}
+			//End case: everything has been merged into one run. It was written by the last merge, so the tape
+			//it is on was rewound then.
+			if (totalRuns == 1)
+				return tapes.get(feeding.get(0));
+			feeding.sort((a, b) -> runs[b] - runs[a]);
+			//The cascade: merge from every feeding tape until the last runs out, then from the rest onto that one
+			while (feeding.size() > 1) {
+				int merges = runs[feeding.get(feeding.size() - 1)];
+				for (int m = 0; m < merges; m++) {
+					sources.clear();
+					for (int i : feeding) {
+						runs[i]--;
+						if (dummies[i] > 0) //This tape's run is a dummy, so it has nothing to add
+							dummies[i]--;
 						else
-							activeFromTapes[j] = 1; //a non-empty tape is active
+							sources.add(tapes.get(i));
 					}
-					for (Tape<T> tape : to) //Erase all the new "to" tapes in preparation for merging to them
-						tape.erase();
-					//The first tape to be written to is "to" tape 0. This is partially because of how the algorithm
-					//detects that the data is sorted
-					activeToTape = 0; 
+					runs[outTape]++;
+					if (sources.isEmpty()) //Merging only dummies makes another dummy
+						dummies[outTape]++;
+					else
+						mergeRun(sources, tapes.get(outTape), tree, order);
 				}
+				tapes.get(outTape).rewind(); //It is read from in the next phase
+				//The tape that ran out (or the first of them, if several did) is merged to next
+				while (!feeding.isEmpty() && runs[feeding.get(feeding.size() - 1)] == 0)
+					outTape = feeding.remove(feeding.size() - 1);
+				tapes.get(outTape).erase();
 			}
-			//The tape's next value does not follow from the one just written; it has entered a new merge section
-			else if (from.get(minTape).read().compareTo(to.get(activeToTape).read()) < 0) {
-				activeFromTapes[minTape] = 0; //It is not empty, but it is no longer active
+			//If a tape is left in feeding, its runs stay on it, to be read on from where it is in the next phase
+		}
+	}
+	
+	/**
+	 * A balanced tapesort on tapes which can be read backward (see Tape.retreat()), so that no tape needs rewinding
+	 * between passes. toSort is split onto numTapes tapes, leaving each on its last item, and every pass then
+	 * reads the tapes it merges from backward, from their ends to their heads, one run from each tape at a time,
+	 * while writing the merged runs forward onto numTapes other tapes in turn, as balancedSort() does. Read
+	 * backward, a run comes out reversed, so each pass merges runs going the opposite way from the last one:
+	 * ascending runs are merged into descending ones, and those into ascending ones again. The last pass merges
+	 * straight onto toSort; if the runs it reads would come out descending, the tapes it reads are rewound and read
+	 * forward instead, the only rewinds in the sort besides toSort's own.
+	 * Only the extra tapes are read backward, so toSort can be any kind of tape, given a TapeFactory for extra tapes
+	 * that can be read backward.
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes + 1. Must be at least 2
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data
+	 * @throws UnsupportedOperationException if the extra tapes cannot be read backward; found out before anything is written
+	 * @return A tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> readBackwardSort(Tape<T> toSort, int numTapes) throws Exception {
+		return readBackwardSort(toSort, numTapes, defaultOrder(toSort));
+	}
+	
+	/**
+	 * readBackwardSort(), with the data sorted by the given order instead of the objects' compareTo()
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes + 1. Must be at least 2
+	 * @param comparator The order to sort the data in
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data
+	 * @throws UnsupportedOperationException if the extra tapes cannot be read backward; found out before anything is written
+	 * @return A tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> readBackwardSort(Tape<T> toSort, int numTapes, Comparator<? super T> comparator) throws Exception {
+		CountingComparator<T> order = counting(comparator);
+		ArrayList<Tape<T>> extra = new ArrayList<Tape<T>>(); //The extra tapes the sort makes
+		Tape<T> sorted = null;
+		try {
+			return sorted = readBackwardSortBy(toSort, extra, numTapes, order);
+		}
+		finally {
+			release(extra, sorted);
+			comparisons.add(order.getCount());
+		}
+	}
+	
+	/*
+	 * The body of readBackwardSort(), comparing the items by the given order
+	 */
+	private Tape<T> readBackwardSortBy(Tape<T> toSort, List<Tape<T>> extra, int numTapes, Comparator<? super T> order) throws Exception {
+		if (numTapes < 2) //Need at least 2 sets of 2 tapes to merge back and forth between
+			throw new Exception("Not enough tapes");
+		toSort.rewind(); //Rewind toSort in preparation
+		fullTapeList.add(toSort); //Tracking purposes
+		ArrayList<Tape<T>> from = new ArrayList<Tape<T>>(); //The tapes read from in the next pass
+		ArrayList<Tape<T>> to = new ArrayList<Tape<T>>(); //The tapes written to in the next pass
+		for (int i = 0; i < numTapes; i++) {
+			from.add(newTape(toSort, extra));
+			to.add(newTape(toSort, extra));
+		}
+		for (Tape<T> tape : extra) { //Fail now, rather than once toSort has been split, if the tapes cannot be read backward
+			tape.retreat();
+			tape.rewind();
+		}
+		fullTapeList.addAll(from); //Tracking purposes only
+		fullTapeList.addAll(to);
+		
+		//Split toSort onto the from tapes, as sort() does; each is left on its last item, ready to be read backward
+		RunSplitter<T> splitter = splitter(toSort, extra, order);
+		int runs = splitter.split(toSort, from);
+		//End case: toSort was empty, or entirely ordered already (see sort())
+		if (runs <= 1 && !splitter.reversed()) {
+			toSort.rewind();
+			return toSort;
+		}
+		
+		//Descending runs are merged with a tree of their own, in the opposite order
+		Comparator<? super T> reverse = Collections.reverseOrder(order);
+		LoserTree<T> ascendingTree = new LoserTree<T>(numTapes, order);
+		LoserTree<T> descendingTree = new LoserTree<T>(numTapes, reverse);
+		boolean ascending = true; //Which way the runs on the from tapes go, as they were written
+		//Each pass merges one run from every from tape into one, so once there are no more runs than from tapes,
+		//the next pass leaves a single run, and is the last
+		while (runs > numTapes) {
+			ascending = !ascending; //Read backward, the runs come out going the other way, and are merged that way
+			for (Tape<T> tape : to) //Erase the to tapes (the last pass's from tapes, already read back to their heads)
+				tape.erase();
+			runs = mergePass(from, to, true, ascending ? ascendingTree : descendingTree, ascending ? order : reverse);
+			//Swap the from and to tapes; the tapes just written to are on their last items, ready to be read backward
+			ArrayList<Tape<T>> temp = from;
+			from = to;
+			to = temp;
+		}
+		//The last pass merges onto toSort, which must be ascending. Read backward, descending runs come out ascending;
+		//ascending runs must be read forward instead.
+		boolean backward = !ascending;
+		if (!backward)
+			for (Tape<T> tape : from)
+				tape.rewind();
+		toSort.erase();
+		mergePass(from, Collections.singletonList(toSort), backward, ascendingTree, order);
+		toSort.rewind();
+		return toSort;
+	}
+	
+	/*
+	 * One pass of readBackwardSort(): merges the runs on the from tapes, one from each tape at a time, onto the to
+	 * tapes in turn, as in balancedSort(). The from tapes are read from their current positions, backward if
+	 * backward is true, and the runs they give are merged in the tree's order, which must be the given one.
+	 * Returns the number of runs written.
+	 */
+	private int mergePass(List<Tape<T>> from, List<Tape<T>> to, boolean backward, LoserTree<T> tree, Comparator<? super T> order) {
+		int sections = 0;
+		while (tree.activate(from) > 0) {
+			Tape<T> dest = to.get(sections % to.size()); //Each section is written to the next to tape
+			for (int minTape = tree.winner(); minTape >= 0; minTape = tree.winner()) {
+				Tape<T> source = from.get(minTape);
+				append(dest, source.read());
+				if (backward)
+					source.retreat();
+				else
+					source.advance();
+				//The source stays active unless it is empty, or its next item does not follow from the one just written
+				tree.replay(source.read() != null && order.compare(source.read(), dest.read()) >= 0);
 			}
+			sections++;
+		}
+		return sections;
+	}
+	
+	/*
+	 * The split step of polyphaseSort() and cascadeSort(): writes the ascending runs of toSort out to all the tapes
+	 * but the last, to fill the levels of the sort's distribution one after another. runs and dummies must start as
+	 * the first level, one run per tape, all dummies, and are left as the level reached, with the dummies still left
+	 * in it. In the polyphase distribution, each level is the one before with every tape getting as many more runs
+	 * as the first tape and the next tape had; in the cascade distribution, tape i gets as many runs in all as the
+	 * first numTapes - i tapes had. Runs are written so as to use up the dummies of each level evenly (Knuth's
+	 * Algorithm D). Returns the number of runs actually written.
+	 */
+	private int distribute(Tape<T> toSort, ArrayList<Tape<T>> tapes, int[] runs, int[] dummies, boolean cascade, Comparator<? super T> order) {
+		int realRuns = 0; //The number of runs actually written
+		int currentTape = 0;
+		while (toSort.read() != null) {
+			Tape<T> tape = tapes.get(currentTape);
+			append(tape, toSort.read()); //A run always has at least one item
+			toSort.advance();
+			while (toSort.read() != null && order.compare(toSort.read(), tape.read()) >= 0) { //The rest of the ascending run
+				append(tape, toSort.read());
+				toSort.advance();
+			}
+			dummies[currentTape]--; //One of this tape's runs is now real
+			realRuns++;
+			if (toSort.read() == null)
+				break;
+			currentTape = nextTape(currentTape, runs, dummies, cascade); //Choose the tape for the next run
+		}
+		return realRuns;
+	}
+	
+	/*
+	 * Chooses the tape for the next run of a polyphase or cascade distribution, after a run has been written to
+	 * currentTape in place of one of its dummies (see distribute()), moving runs and dummies up to the next level
+	 * if this one is full. Used by SortPlanner too, to work out the distribution without writing it.
+	 */
+	static int nextTape(int currentTape, int[] runs, int[] dummies, boolean cascade) {
+		int numTapes = runs.length - 1;
+		if (dummies[currentTape] < dummies[currentTape + 1])
+			return currentTape + 1;
+		if (dummies[currentTape] == 0) { //This level is full; move up to the next one
+			if (cascade) {
+				int[] before = Arrays.copyOf(runs, numTapes);
+				int total = 0; //The runs of the first numTapes - i tapes, before
+				for (int i = numTapes - 1; i >= 0; i--) {
+					total += before[numTapes - 1 - i];
+					dummies[i] = total - before[i];
+					runs[i] = total;
+				}
+			}
+			else {
+				int firstRuns = runs[0];
+				for (int i = 0; i < numTapes; i++) {
+					dummies[i] = firstRuns + runs[i + 1] - runs[i];
+					runs[i] = firstRuns + runs[i + 1];
+				}
+			}
+		}
+		return 0;
+	}
+	
+	/*
+	 * Merges one run from each of the sources onto the end of dest. Each source must be at the start of a run
+	 * (or empty), and is left at the start of its next run. The tree must have room for all the sources,
+	 * and use the same order.
+	 */
+	private void mergeRun(ArrayList<Tape<T>> sources, Tape<T> dest, LoserTree<T> tree, Comparator<? super T> order) {
+		tree.activate(sources); //A source that is already empty had its run join up with the one before it
+		for (int minTape = tree.winner(); minTape >= 0; minTape = tree.winner()) {
+			Tape<T> from = sources.get(minTape);
+			append(dest, from.read());
+			from.advance();
+			//The tape is empty, or its next item does not follow from the one just written, so its run is over
+			tree.replay(from.read() != null && order.compare(from.read(), dest.read()) >= 0);
+		}
+	}
+	
+	/*
+	 * Writes the datum after the last item on the tape; if the tape is empty, it is written at the head.
+	 * Takes advantage of the quirks of the advance() method, the way the sorts above do.
+	 */
+	static <T> void append(Tape<T> tape, T datum) {
+		if (tape.read() != null)
+			tape.advance();
+		tape.write(datum);
+	}
+	
+	/*
+	 * Makes a new empty extra tape for sorting toSort, adding it to the sort's list of them
+	 */
+	private Tape<T> newTape(Tape<T> toSort, List<Tape<T>> extra) {
+		Tape<T> tape = scratch != null ? scratch.newTape() : toSort.blank();
+		extra.add(tape);
+		return tape;
+	}
+	
+	/*
+	 * Makes the RunSplitter for a sort. Descending runs too long for it to hold are spilled onto an extra tape of
+	 * their own, made only if one is found, so they are reversed whole if the extra tapes can be read backward.
+	 */
+	private RunSplitter<T> splitter(Tape<T> toSort, List<Tape<T>> extra, Comparator<? super T> order) {
+		return new RunSplitter<T>(order, RunSplitter.DEFAULT_MAX_REVERSED, () -> {
+			Tape<T> spill = newTape(toSort, extra);
+			fullTapeList.add(spill); //Tracking purposes only
+			return spill;
+		});
+	}
+	
+	/*
+	 * Releases the extra tapes a sort made once it is over, so they are not left holding data (or files, for a
+	 * FileTape or MappedTape): each is closed if it is Closeable, or else erased. The tape the sort returns, if it
+	 * is one of them, is left for the caller. Their write counts are kept for getTotalWrites().
+	 */
+	private void release(List<Tape<T>> extra, Tape<T> sorted) {
+		for (Tape<T> tape : extra) {
+			if (tape == sorted)
+				continue;
+			if (tape instanceof Closeable) {
+				try {
+					((Closeable) tape).close();
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			else
+				tape.erase();
+		}
+	}
+	
+	/**
+	 * Sorts toSort with whichever of the sorts above is expected to make the fewest writes with the given tapes
+	 * and memory, as chosen by plan().
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param resources The tapes and memory the sort may use
+	 * @throws Exception if the sort chosen throws one
+	 * @return A tape containing the sorted data; depending on the sort chosen, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> sortAuto(Tape<T> toSort, SortResources resources) throws Exception {
+		return sortAuto(toSort, resources, defaultOrder(toSort));
+	}
+	
+	/**
+	 * sortAuto(), with the data sorted by the given order instead of the objects' compareTo()
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param resources The tapes and memory the sort may use
+	 * @param comparator The order to sort the data in
+	 * @throws Exception if the sort chosen throws one
+	 * @return A tape containing the sorted data; depending on the sort chosen, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> sortAuto(Tape<T> toSort, SortResources resources, Comparator<? super T> comparator) throws Exception {
+		SortPlan plan = plan(toSort, resources, comparator);
+		switch (plan.getStrategy()) {
+		case MULTI_SORT:
+			return multiSort(toSort, plan.getNumTapes(), plan.getHeapSize(), comparator);
+		case BALANCED_SORT:
+			return balancedSort(toSort, plan.getNumTapes(), plan.getHeapSize(), comparator);
+		case POLYPHASE_SORT:
+			return polyphaseSort(toSort, plan.getNumTapes(), comparator);
+		case CASCADE_SORT:
+			return cascadeSort(toSort, plan.getNumTapes(), comparator);
+		default:
+			return sort(toSort, comparator);
+		}
+	}
+	
+	/**
+	 * Chooses the sort sortAuto() would use for toSort, by sampling its head and estimating the writes each
+	 * sort would make with the given tapes and memory (see SortPlanner). toSort is left rewound and unchanged.
+	 * @param toSort The tape containing the data to be sorted
+	 * @param resources The tapes and memory the sort may use
+	 * @param comparator The order to sort the data in
+	 * @return The sort to use, with its arguments and the writes it is expected to make
+	 */
+	public SortPlan plan(Tape<T> toSort, SortResources resources, Comparator<? super T> comparator) {
+		CountingComparator<T> order = counting(comparator);
+		try {
+			return SortPlanner.plan(toSort, resources, order);
+		}
+		finally {
+			comparisons.add(order.getCount());
 		}
-		//The "end case" break just happened, so these are the last steps.
-		to.get(0).rewind(); //Rewind "to" tape zero in preparation of returning it
-		return to.get(0); //Return the sorted tape
 	}
 	
 	/**
@@ -391,7 +1224,8 @@ public class TapeSorter<T extends Comparable<T>> {
 	 * of writes to them, and all tapes used are stored in a private list of tapes (fullTapeList) entirely
 	 * so that their number of writes can be returned here. If one TapeSorter sorts multiple tapes in a row,
 	 * its count will be the sum of all writes used in all its sorts. To start back at 0, a new TapeSorter object must
-	 * be initialized and used.
+	 * be initialized and used. It may be called while sorts are running on other threads, but then the writes of
+	 * those sorts are only counted as far as they have got.
 	 * @return The number of total writes done by this TapeSorter object.
 	 */
 	public int getTotalWrites() {
@@ -400,4 +1234,127 @@ public class TapeSorter<T extends Comparable<T>> {
 			totalWrites += tape.getWrites();
 		return totalWrites;
 	}
+	
+	/**
+	 * Like getTotalWrites(), this exists for efficiency tracking, for sorts of DeviceTapes (or of tapes whose extra
+	 * tapes are DeviceTapes, made by a TapeFactory): it adds up the simulated time taken by every DeviceTape this
+	 * TapeSorter has used, so the sorts can be compared by how long they would take on a tape device. Each tape's
+	 * time is counted separately, as though each were on a drive of its own, so this is the time the drives were
+	 * busy in all; tapes which are not DeviceTapes count for nothing.
+	 * @return The total simulated time taken by this TapeSorter object's tapes, in the unit of their models' costs
+	 */
+	public double getTotalDeviceTime() {
+		double totalTime = 0;
+		for (Tape<T> tape : fullTapeList)
+			if (tape instanceof DeviceTape)
+				totalTime += ((DeviceTape<T>) tape).getTime();
+		return totalTime;
+	}
+	
+	/**
+	 * Like getTotalWrites(), this exists for efficiency tracking. Every comparison made by this TapeSorter's
+	 * sorts is counted, whatever the class of the objects being sorted (CompCounter is not needed), and the
+	 * count is a long, so it does not overflow on large sorts.
+	 * @return The number of comparisons done by this TapeSorter object's completed sorts.
+	 */
+	public long getTotalComparisons() {
+		return comparisons.sum();
+	}
+	
+	/**
+	 * sort(), with the data sorted by an int key taken from each object, so the objects do not need to be Comparable,
+	 * or wrapped in something that is. A convenience for sort(toSort, Comparator.comparingInt(key)): the keys are
+	 * not kept, but taken from both objects again on every comparison, so key should be cheap.
+	 * @param toSort The tape containing the data to be sorted. It is altered during the method's running.
+	 * @param key Gives the key of each object
+	 * @return A tape with the data sorted on it. The returned tape is actually toSort, with the data on it sorted.
+	 */
+	public Tape<T> sortByIntKey(Tape<T> toSort, ToIntFunction<? super T> key) {
+		return sort(toSort, Comparator.comparingInt(key));
+	}
+	
+	/**
+	 * sort(), with the data sorted by a long key taken from each object. A convenience for
+	 * sort(toSort, Comparator.comparingLong(key)): the key is taken from both objects on every comparison
+	 * @param toSort The tape containing the data to be sorted. It is altered during the method's running.
+	 * @param key Gives the key of each object
+	 * @return A tape with the data sorted on it. The returned tape is actually toSort, with the data on it sorted.
+	 */
+	public Tape<T> sortByLongKey(Tape<T> toSort, ToLongFunction<? super T> key) {
+		return sort(toSort, Comparator.comparingLong(key));
+	}
+	
+	/**
+	 * multiSort(), with the data sorted by an int key taken from each object. A convenience for
+	 * multiSort(toSort, numTapes, Comparator.comparingInt(key)): the key is taken from both objects on every comparison
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @param key gives the key of each object
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> multiSortByIntKey(Tape<T> toSort, int numTapes, ToIntFunction<? super T> key) throws Exception {
+		return multiSort(toSort, numTapes, Comparator.comparingInt(key));
+	}
+	
+	/**
+	 * multiSort(), with the data sorted by a long key taken from each object. A convenience for
+	 * multiSort(toSort, numTapes, Comparator.comparingLong(key)): the key is taken from both objects on every comparison
+	 * @param toSort the tape containing the data to be sorted. toSort will be modified.
+	 * @param numTapes the number of additional tapes to be used to sort the data.
+	 * @param key gives the key of each object
+	 * @throws Exception an exception thrown if not enough tapes are provided to sort the data; numTapes must be at least 2
+	 * @return a tape with the data sorted on it; is actually the input tape, toSort
+	 */
+	public Tape<T> multiSortByLongKey(Tape<T> toSort, int numTapes, ToLongFunction<? super T> key) throws Exception {
+		return multiSort(toSort, numTapes, Comparator.comparingLong(key));
+	}
+	
+	/**
+	 * balancedSort(), with the data sorted by an int key taken from each object. A convenience for
+	 * balancedSort(toSort, numTapes, Comparator.comparingInt(key)): the key is taken from both objects on every comparison
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param key Gives the key of each object
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> balancedSortByIntKey(Tape<T> toSort, int numTapes, ToIntFunction<? super T> key) {
+		return balancedSort(toSort, numTapes, Comparator.comparingInt(key));
+	}
+	
+	/**
+	 * balancedSort(), with the data sorted by a long key taken from each object. A convenience for
+	 * balancedSort(toSort, numTapes, Comparator.comparingLong(key)): the key is taken from both objects on every comparison
+	 * @param toSort The tape containing the data to be sorted; is modified
+	 * @param numTapes The number of tapes in each group of tapes; total number of tapes used will be 2 * numTapes. Must be at least 2
+	 * @param key Gives the key of each object
+	 * @throws IllegalArgumentException if numTapes is less than 2
+	 * @return A tape containing the sorted data; unlike sort and multiSort, this tape might not be toSort; if it is not, it is one of the extra tapes, which the caller must close (if it is Closeable) once done with it
+	 */
+	public Tape<T> balancedSortByLongKey(Tape<T> toSort, int numTapes, ToLongFunction<? super T> key) {
+		return balancedSort(toSort, numTapes, Comparator.comparingLong(key));
+	}
+	
+	/*
+	 * A new counter of comparisons in the given order, for one sort
+	 */
+	private CountingComparator<T> counting(Comparator<? super T> order) {
+		return new CountingComparator<T>(order);
+	}
+	
+	/*
+	 * The order the sorts given no Comparator sort toSort in: the one this TapeSorter was made with, or else the
+	 * objects' natural order, by their compareTo(). As T is not known to be Comparable then, the item at toSort's
+	 * current position is checked, so objects which are not Comparable fail before the sort starts, not partway.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Comparator<? super T> defaultOrder(Tape<T> toSort) {
+		if (order != null)
+			return order;
+		T datum = toSort.read();
+		if (datum != null && !(datum instanceof Comparable))
+			throw new ClassCastException(datum.getClass().getName() + " is not Comparable; sort it with a Comparator");
+		return (Comparator<T>) (Comparator) Comparator.naturalOrder();
+	}
 }
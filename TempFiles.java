@@ -0,0 +1,55 @@
+package sorts.tapesort;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The temporary files behind FileTapes and MappedTapes. A file is deleted when its tape is closed, and any
+ * still open are deleted when the JVM exits. File.deleteOnExit() would do the latter, but it never forgets a
+ * file, even once it has been deleted, so a process sorting again and again would keep a growing list of them;
+ * here, a file is forgotten as soon as it is deleted.
+ * @author Nathaniel Schleicher
+ *
+ */
+class TempFiles {
+
+	/*
+	 * The temporary files not yet deleted
+	 */
+	private static final Set<File> open = ConcurrentHashMap.newKeySet();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			for (File file : open)
+				file.delete();
+		}));
+	}
+
+	private TempFiles() {
+	}
+
+	/*
+	 * Makes a temporary file for a tape in the given directory (or the default temporary directory if null)
+	 */
+	static File create(File directory) {
+		try {
+			File file = File.createTempFile("tape", ".tmp", directory);
+			open.add(file);
+			return file;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Deletes a temporary file made by create(), and forgets it
+	 */
+	static void delete(File file) {
+		file.delete();
+		open.remove(file);
+	}
+}
@@ -0,0 +1,71 @@
+package sorts.tapesort.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.tapesort.Tape;
+import sorts.tapesort.TapeSorter;
+
+/**
+ * Benchmarks the sorts that take a number of tapes, at several tape counts.
+ * numTapes is passed to each sort as is, so multiSort(), polyphaseSort() and cascadeSort() use numTapes + 1 tapes,
+ * balancedSort() and pipelinedBalancedSort() use 2 * numTapes, and readBackwardSort() uses 2 * numTapes + 1. parallelMultiSort() forms its first runs in chunks of chunkSize items.
+ * @author Nathaniel Schleicher
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiTapeBenchmark extends TapeData {
+
+	@Param({"2", "4", "8", "16"})
+	public int numTapes;
+
+	@Param({"4096"})
+	public int chunkSize;
+
+	@Benchmark
+	public Tape<Integer> multiSort() throws Exception {
+		return TapeSorter.<Integer>natural().multiSort(input(), numTapes);
+	}
+
+	@Benchmark
+	public Tape<Integer> parallelMultiSort() throws Exception {
+		return TapeSorter.<Integer>natural().parallelMultiSort(input(), numTapes, chunkSize);
+	}
+
+	@Benchmark
+	public Tape<Integer> balancedSort() {
+		return TapeSorter.<Integer>natural().balancedSort(input(), numTapes);
+	}
+
+	@Benchmark
+	public Tape<Integer> pipelinedBalancedSort() {
+		return TapeSorter.<Integer>natural().pipelinedBalancedSort(input(), numTapes);
+	}
+
+	@Benchmark
+	public Tape<Integer> readBackwardSort() throws Exception {
+		return TapeSorter.<Integer>natural().readBackwardSort(input(), numTapes);
+	}
+
+	@Benchmark
+	public Tape<Integer> polyphaseSort() throws Exception {
+		return TapeSorter.<Integer>natural().polyphaseSort(input(), numTapes);
+	}
+
+	@Benchmark
+	public Tape<Integer> cascadeSort() throws Exception {
+		return TapeSorter.<Integer>natural().cascadeSort(input(), numTapes);
+	}
+}
@@ -0,0 +1,32 @@
+package sorts.tapesort.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.tapesort.Tape;
+import sorts.tapesort.TapeSorter;
+
+/**
+ * Benchmarks the standard 3-tape sort, TapeSorter.sort()
+ * @author Nathaniel Schleicher
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortBenchmark extends TapeData {
+
+	@Benchmark
+	public Tape<Integer> sort() {
+		return TapeSorter.<Integer>natural().sort(input());
+	}
+}
@@ -0,0 +1,107 @@
+package sorts.tapesort.bench;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sorts.tapesort.ChunkedTape;
+import sorts.tapesort.LinkedTape;
+import sorts.tapesort.Tape;
+
+/**
+ * The input data shared by the benchmarks: a tape of size Integers laid out according to distribution,
+ * on a tape of the given kind (whose blank() gives the sorts their extra tapes of the same kind).
+ * The data is generated onto a master tape once per trial. Since the sorts modify the tape they are given, each
+ * benchmark sorts a copy of it made by input(), onto one working tape reused by every invocation. Copying is
+ * part of what is measured, but it costs one pass over the data, against the several of any sort, and unlike
+ * a setup before every invocation it adds no timing overhead to the small sizes.
+ * @author Nathaniel Schleicher
+ *
+ */
+@State(Scope.Thread)
+public abstract class TapeData {
+
+	/**
+	 * The ways the input data can be ordered
+	 */
+	public enum Distribution {
+		/** Uniformly random ints */
+		RANDOM,
+		/** Already in ascending order; a single run */
+		PRESORTED,
+		/** In descending order; a single descending run, which the sorts reverse whole (see RunSplitter) */
+		REVERSED,
+		/** Random, but with only 8 distinct values */
+		FEW_UNIQUE,
+		/** Ascending runs of 1000 items each */
+		SAWTOOTH
+	}
+
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	@Param({"RANDOM", "PRESORTED", "REVERSED", "FEW_UNIQUE", "SAWTOOTH"})
+	public Distribution distribution;
+
+	@Param({"LINKED", "CHUNKED"})
+	public String tapeKind;
+
+	/*
+	 * The data, generated once per trial
+	 */
+	private Tape<Integer> master;
+
+	/*
+	 * The tape each invocation sorts a copy of the data on
+	 */
+	private Tape<Integer> tape;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		Random random = new Random(42); //Fixed seed, so every run sorts the same data
+		Integer[] data = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			switch (distribution) {
+			case RANDOM:
+				data[i] = random.nextInt();
+				break;
+			case PRESORTED:
+				data[i] = i;
+				break;
+			case REVERSED:
+				data[i] = size - i;
+				break;
+			case FEW_UNIQUE:
+				data[i] = random.nextInt(8);
+				break;
+			case SAWTOOTH:
+				data[i] = i % 1000;
+				break;
+			}
+		}
+		if (tapeKind.equals("CHUNKED")) {
+			master = new ChunkedTape<Integer>();
+			master.writeFrom(data, 0, size);
+			master.rewind();
+		}
+		else
+			master = new LinkedTape<Integer>().intTape(data);
+		tape = master.blank();
+	}
+
+	/**
+	 * Copies the data onto the working tape, for an invocation to sort
+	 * @return The working tape, rewound, holding a fresh copy of the data
+	 */
+	protected Tape<Integer> input() {
+		tape.erase();
+		master.rewind();
+		master.transferTo(tape, Long.MAX_VALUE);
+		tape.rewind();
+		return tape;
+	}
+}